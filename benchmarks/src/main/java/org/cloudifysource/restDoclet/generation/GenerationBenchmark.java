@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.cloudifysource.restDoclet.constants.RestDocConstants;
+import org.cloudifysource.restDoclet.docElements.DocController;
+import org.cloudifysource.restDoclet.exampleGenerators.DefaultRequestBodyParameterFilter;
+import org.cloudifysource.restDoclet.exampleGenerators.DocDefaultExampleGenerator;
+import org.cloudifysource.restDoclet.exampleGenerators.JsonSerialization;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.RootDoc;
+
+/**
+ * Measures the steps of the generation pipeline separately, on a synthetic source tree
+ * (see {@link SyntheticSourceTree}). <br />
+ * The sources are parsed once per trial, every invocation starts from a new {@link GenerationContext}
+ * so the run-wide caches do not carry over from one invocation to the next.
+ * The examples of the controllers are generated when they are first rendered and then kept,
+ * so the rendering is measured both with the examples (on controllers generated for each invocation)
+ * and without them.
+ *
+ * @since 0.5.3
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GenerationBenchmark {
+
+	/**
+	 * The number of controllers in the source tree.
+	 */
+	@Param({ "10", "100" })
+	public int controllers;
+
+	/**
+	 * The number of DTO levels of each controller.
+	 */
+	@Param({ "3", "8" })
+	public int dtoDepth;
+
+	private File workDir;
+	private RootDoc root;
+	private ClassDoc[] classes;
+	private ClassDoc rootDto;
+	private Generator generator;
+	private List<DocController> docControllers;
+	private Set<ClassDoc> enums;
+	private String compactJson;
+
+	/**
+	 * Writes and parses the source tree, and generates the input of the later steps.
+	 *
+	 * @throws Exception .
+	 */
+	@Setup
+	public void setUp() throws Exception {
+		Logger.getLogger(Generator.class.getName()).setLevel(java.util.logging.Level.WARNING);
+		workDir = Files.createTempDirectory("rest-doclet-benchmark").toFile();
+		File sourceDir = new File(workDir, "src");
+		SyntheticSourceTree.write(sourceDir, controllers, dtoDepth);
+		root = RootDocCapture.parse(sourceDir, SyntheticSourceTree.PACKAGE,
+				new String[] { RestDocConstants.DOC_DEST_PATH_FLAG, new File(workDir, "restdoclet.html").getPath() });
+		classes = root.classes();
+		rootDto = root.classNamed(SyntheticSourceTree.rootDtoName(0));
+		generator = new Generator(root);
+
+		GenerationContext context = newContext();
+		docControllers = generateDocControllers(context);
+		enums = context.getIncludeEnums();
+		// THE EXAMPLES ARE GENERATED BY THE FIRST RENDERING
+		generator.generateHtmlDocumentation(docControllers, enums, new CountingWriter());
+		compactJson = JsonSerialization.toJson(generateJSONBody());
+	}
+
+	/**
+	 * Removes the source tree.
+	 *
+	 * @throws IOException .
+	 */
+	@TearDown
+	public void tearDown() throws IOException {
+		delete(workDir);
+	}
+
+	/**
+	 *
+	 * @return The controllers of all the classes.
+	 * @throws Exception .
+	 */
+	@Benchmark
+	public Map<ClassDoc, List<DocController>> generateControllers() throws Exception {
+		return Generator.generateControllers(newContext(), classes, 1);
+	}
+
+	/**
+	 *
+	 * @return The example body of the first level DTO of the first controller.
+	 */
+	@Benchmark
+	public Map<String, Object> generateJSONBody() {
+		GenerationContext context = newContext();
+		context.pushType(rootDto.qualifiedTypeName());
+		return Generator.generateJSONBody(context, rootDto, TypeVariableResolver.Bindings.EMPTY);
+	}
+
+	/**
+	 *
+	 * @return The indented example body.
+	 * @throws IOException .
+	 */
+	@Benchmark
+	public String getIndentJson() throws IOException {
+		return Utils.getIndentJson(compactJson);
+	}
+
+	/**
+	 * Renders controllers whose examples were not generated yet.
+	 *
+	 * @param fresh The controllers generated for this invocation.
+	 * @return The number of characters written.
+	 * @throws Exception .
+	 */
+	@Benchmark
+	public long generateHtmlDocumentation(final FreshControllers fresh) throws Exception {
+		CountingWriter writer = new CountingWriter();
+		generator.generateHtmlDocumentation(fresh.docControllers, fresh.enums, writer);
+		return writer.count;
+	}
+
+	/**
+	 * Renders controllers whose examples were already generated, so only the template is measured.
+	 *
+	 * @return The number of characters written.
+	 * @throws Exception .
+	 */
+	@Benchmark
+	public long renderHtmlDocumentation() throws Exception {
+		CountingWriter writer = new CountingWriter();
+		generator.generateHtmlDocumentation(docControllers, enums, writer);
+		return writer.count;
+	}
+
+	private GenerationContext newContext() {
+		return new GenerationContext(root, new DocDefaultExampleGenerator(), new DocDefaultExampleGenerator(),
+				new DefaultRequestBodyParameterFilter());
+	}
+
+	private List<DocController> generateDocControllers(final GenerationContext context) throws Exception {
+		List<DocController> generated = new ArrayList<DocController>();
+		for (List<DocController> classControllers : Generator.generateControllers(context, classes, 1).values()) {
+			if (classControllers != null) {
+				generated.addAll(classControllers);
+			}
+		}
+		return generated;
+	}
+
+	/**
+	 * The controllers of all the classes, generated again before each invocation,
+	 * so their examples are generated by the invocation that renders them.
+	 */
+	@State(Scope.Thread)
+	public static class FreshControllers {
+		private List<DocController> docControllers;
+		private Set<ClassDoc> enums;
+
+		/**
+		 *
+		 * @param benchmark The parsed source tree.
+		 * @throws Exception .
+		 */
+		@Setup(Level.Invocation)
+		public void setUp(final GenerationBenchmark benchmark) throws Exception {
+			GenerationContext context = benchmark.newContext();
+			docControllers = benchmark.generateDocControllers(context);
+			enums = context.getIncludeEnums();
+		}
+	}
+
+	private static void delete(final File file) throws IOException {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		Files.deleteIfExists(file.toPath());
+	}
+
+	/**
+	 * Discards the rendered HTML, so the rendering is measured without the I/O.
+	 */
+	private static final class CountingWriter extends Writer {
+		private long count;
+
+		@Override
+		public void write(final char[] cbuf, final int off, final int len) {
+			count += len;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudifysource.restDoclet.constants.RestDocConstants;
+
+import com.sun.javadoc.LanguageVersion;
+import com.sun.javadoc.RootDoc;
+
+/**
+ * A doclet that only keeps the javadoc model, so the benchmarks can run the generation
+ * steps on it without parsing the sources again.
+ * The options of {@link RestDoclet} are accepted as well.
+ *
+ * @since 0.5.3
+ */
+public final class RootDocCapture {
+	private static RootDoc captured;
+
+	private RootDocCapture() {
+	}
+
+	/**
+	 *
+	 * @param root .
+	 * @return true.
+	 */
+	public static boolean start(final RootDoc root) {
+		captured = root;
+		return true;
+	}
+
+	/**
+	 *
+	 * @param option .
+	 * @return The option's length, as expected by {@link RestDoclet}.
+	 */
+	public static int optionLength(final String option) {
+		return RestDoclet.optionLength(option);
+	}
+
+	/**
+	 *
+	 * @return LanguageVersion.JAVA_1_5
+	 */
+	public static LanguageVersion languageVersion() {
+		return LanguageVersion.JAVA_1_5;
+	}
+
+	/**
+	 * Runs javadoc on a package of the given source directory.
+	 * The classes of the current class path (the Spring annotations in particular) are visible to the sources,
+	 * and the private members are documented.
+	 *
+	 * @param sourceDir .
+	 * @param packageName .
+	 * @param docletOptions Options passed to the doclet, each one a flag followed by its value.
+	 * @return The javadoc model.
+	 */
+	static synchronized RootDoc parse(final File sourceDir, final String packageName,
+									  final String[]... docletOptions) {
+		List<String> args = new ArrayList<String>();
+		args.add("-quiet");
+		// The DTOs keep their fields private
+		args.add("-private");
+		args.add(RestDocConstants.SOURCE_PATH_FLAG);
+		args.add(sourceDir.getAbsolutePath());
+		args.add("-classpath");
+		args.add(System.getProperty("java.class.path"));
+		for (String[] option : docletOptions) {
+			for (String token : option) {
+				args.add(token);
+			}
+		}
+		args.add(packageName);
+
+		StringWriter errors = new StringWriter();
+		PrintWriter errWriter = new PrintWriter(errors);
+		PrintWriter silent = new PrintWriter(new StringWriter());
+		captured = null;
+		int exitCode = com.sun.tools.javadoc.Main.execute("rest-doclet-benchmarks", errWriter, silent, silent,
+				RootDocCapture.class.getName(), RootDocCapture.class.getClassLoader(),
+				args.toArray(new String[args.size()]));
+		errWriter.flush();
+		if (exitCode != 0 || captured == null) {
+			throw new IllegalStateException("javadoc failed with exit code " + exitCode + ": " + errors);
+		}
+		return captured;
+	}
+}
@@ -0,0 +1,157 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+
+/**
+ * Writes the sources of a synthetic REST API:
+ * <ul>
+ * <li>A generic base controller with GET, PUT/POST and list methods on its type parameters.</li>
+ * <li>N controllers, each extending the base controller with its own DTO and adding a search method.</li>
+ * <li>A chain of DTOs per controller, dtoDepth levels deep, with lists, maps and an enum on every level,
+ * the last level refers back to the first one.</li>
+ * <li>A pair of DTOs that refer to each other, used by all the controllers.</li>
+ * </ul>
+ * The cycles go through plain fields only, so the trees of the earlier versions,
+ * which did not cut cycles that go through the element type of a collection, can be compared.
+ *
+ * @since 0.5.3
+ */
+final class SyntheticSourceTree {
+	static final String PACKAGE = "org.cloudifysource.restDoclet.benchmarks.api";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String HEADER = "package " + PACKAGE + ";\n\n"
+			+ "import java.util.List;\n"
+			+ "import java.util.Map;\n\n"
+			+ "import org.springframework.stereotype.Controller;\n"
+			+ "import org.springframework.web.bind.annotation.PathVariable;\n"
+			+ "import org.springframework.web.bind.annotation.RequestBody;\n"
+			+ "import org.springframework.web.bind.annotation.RequestMapping;\n"
+			+ "import org.springframework.web.bind.annotation.RequestMethod;\n"
+			+ "import org.springframework.web.bind.annotation.RequestParam;\n"
+			+ "import org.springframework.web.bind.annotation.ResponseBody;\n\n";
+
+	private SyntheticSourceTree() {
+	}
+
+	/**
+	 *
+	 * @param controllerIndex .
+	 * @return The qualified name of the DTO the controller's methods take and return.
+	 */
+	static String rootDtoName(final int controllerIndex) {
+		return PACKAGE + "." + dtoName(controllerIndex, 0);
+	}
+
+	/**
+	 * Writes the sources under the given directory.
+	 *
+	 * @param sourceDir The source root.
+	 * @param controllers The number of controllers.
+	 * @param dtoDepth The number of DTO levels of each controller.
+	 * @throws IOException .
+	 */
+	static void write(final File sourceDir, final int controllers, final int dtoDepth) throws IOException {
+		File packageDir = new File(sourceDir, PACKAGE.replace('.', File.separatorChar));
+		if (!packageDir.isDirectory() && !packageDir.mkdirs()) {
+			throw new IOException("Could not create " + packageDir.getAbsolutePath());
+		}
+
+		write(packageDir, "Status", "/** The status of a resource. */\n"
+				+ "public enum Status {\n"
+				+ "\t/** Being created. */\n\tPENDING,\n"
+				+ "\t/** In use. */\n\tACTIVE,\n"
+				+ "\t/** No longer in use. */\n\tRETIRED\n"
+				+ "}\n");
+
+		write(packageDir, "Parent", "/** A parent that refers to its children. */\n"
+				+ "public class Parent {\n"
+				+ "\t/** The name. */\n\tprivate String name;\n"
+				+ "\t/** The children. */\n\tprivate List<Child> children;\n"
+				+ "}\n");
+
+		write(packageDir, "Child", "/** A child that refers back to its parent. */\n"
+				+ "public class Child {\n"
+				+ "\t/** The parent. */\n\tprivate Parent parent;\n"
+				+ "\t/** The status. */\n\tprivate Status status;\n"
+				+ "}\n");
+
+		write(packageDir, "BaseController", "/**\n * The operations shared by all the resources.\n"
+				+ " * @param <T> The resource type.\n * @param <I> The resource id type.\n */\n"
+				+ "public abstract class BaseController<T, I> {\n"
+				+ "\t/**\n\t * Returns a resource.\n\t * @param id The resource id.\n\t * @return The resource.\n\t */\n"
+				+ "\t@RequestMapping(value = \"/{id}\", method = RequestMethod.GET)\n"
+				+ "\t@ResponseBody\n"
+				+ "\tpublic T get(@PathVariable final I id) {\n\t\treturn null;\n\t}\n\n"
+				+ "\t/**\n\t * Replaces a resource.\n\t * @param id The resource id.\n\t * @param body The resource.\n"
+				+ "\t * @return The replaced resource.\n\t */\n"
+				+ "\t@RequestMapping(value = \"/{id}\", method = { RequestMethod.PUT, RequestMethod.POST })\n"
+				+ "\t@ResponseBody\n"
+				+ "\tpublic T update(@PathVariable final I id, @RequestBody final T body) {\n\t\treturn body;\n\t}\n\n"
+				+ "\t/**\n\t * Lists the resources.\n\t * @param filter An optional filter.\n\t * @return The resources.\n\t */\n"
+				+ "\t@RequestMapping(value = \"/\", method = RequestMethod.GET)\n"
+				+ "\t@ResponseBody\n"
+				+ "\tpublic List<T> list(@RequestParam(required = false) final String filter) {\n\t\treturn null;\n\t}\n"
+				+ "}\n");
+
+		for (int i = 0; i < controllers; i++) {
+			for (int level = 0; level < dtoDepth; level++) {
+				StringBuilder fields = new StringBuilder()
+						.append("\t/** The name. */\n\tprivate String name;\n")
+						.append("\t/** A counter. */\n\tprivate int count;\n")
+						.append("\t/** The status. */\n\tprivate Status status;\n")
+						.append("\t/** The owner. */\n\tprivate Parent owner;\n");
+				if (level + 1 < dtoDepth) {
+					String next = dtoName(i, level + 1);
+					fields.append("\t/** The next level. */\n\tprivate ").append(next).append(" next;\n")
+							.append("\t/** The next level, as a list. */\n\tprivate List<").append(next)
+							.append("> nextList;\n")
+							.append("\t/** The next level, by name. */\n\tprivate Map<String, ").append(next)
+							.append("> nextByName;\n");
+				} else {
+					fields.append("\t/** The first level. */\n\tprivate ").append(dtoName(i, 0)).append(" first;\n");
+				}
+				write(packageDir, dtoName(i, level), "/** Level " + level + " of resource " + i + ". */\n"
+						+ "public class " + dtoName(i, level) + " {\n" + fields + "}\n");
+			}
+
+			String controllerName = "Resource" + i + "Controller";
+			write(packageDir, controllerName, "/** The controller of resource " + i + ". */\n"
+					+ "@Controller\n"
+					+ "@RequestMapping(value = { \"/resource" + i + "\", \"/v2/resource" + i + "\" })\n"
+					+ "public class " + controllerName + " extends BaseController<" + dtoName(i, 0) + ", Long> {\n"
+					+ "\t/**\n\t * Searches the resources.\n\t * @param query The query.\n"
+					+ "\t * @param limit The maximal number of results.\n\t * @return The results by owner.\n\t */\n"
+					+ "\t@RequestMapping(value = \"/search\", method = RequestMethod.POST)\n"
+					+ "\t@ResponseBody\n"
+					+ "\tpublic Map<String, Parent> search(@RequestBody final " + dtoName(i, 0) + " query,\n"
+					+ "\t\t\t@RequestParam final int limit) {\n\t\treturn null;\n\t}\n"
+					+ "}\n");
+		}
+	}
+
+	private static String dtoName(final int controllerIndex, final int level) {
+		return "Resource" + controllerIndex + "Level" + level;
+	}
+
+	private static void write(final File packageDir, final String className, final String body) throws IOException {
+		Files.write(new File(packageDir, className + ".java").toPath(), (HEADER + body).getBytes(UTF8));
+	}
+}
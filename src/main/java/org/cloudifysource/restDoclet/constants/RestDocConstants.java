@@ -17,6 +17,8 @@
 package org.cloudifysource.restDoclet.constants;
 
 import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.cloudifysource.restDoclet.docElements.DocAnnotation;
 import org.cloudifysource.restDoclet.docElements.DocJsonRequestExample;
@@ -82,6 +84,14 @@ public final class RestDocConstants {
 	 * 
 	 */
 	public static final String VELOCITY_TEMPLATE_FILE_NAME = "restDocletVelocityTemplate.vm";
+	/**
+	 * 
+	 */
+	public static final String VELOCITY_INDEX_TEMPLATE_FILE_NAME = "restDocletIndexTemplate.vm";
+	/**
+	 * The suffix of the file, next to the index page, that lists the controller pages written by the last run.
+	 */
+	public static final String PAGE_LIST_FILE_SUFFIX = ".pages";
 	/**
 	 * 
 	 */
@@ -125,6 +135,139 @@ public final class RestDocConstants {
 	 * 
 	 */
 	public static final String REQUEST_BODY_PARAM_FILTER_CLASS_FLAG = "-requestBodyParamFilter";
+	/**
+	 * 
+	 */
+	public static final String PARALLELISM_FLAG = "-docletParallelism";
+	/**
+	 * The default number of worker threads used to extract the controllers (1 means sequential).
+	 * The threads read the javadoc model one at a time, so more threads are opt-in.
+	 */
+	public static final int PARALLELISM = 1;
+	/**
+	 * The single page is kept when no controller changed, and regenerated entirely otherwise.
+	 * Only the multi-page output regenerates the changed controllers alone.
+	 */
+	public static final String CACHE_PATH_FLAG = "-docletCache";
+	/**
+	 * 
+	 */
+	public static final String OUTPUT_MODE_FLAG = "-docletOutputMode";
+	/**
+	 * All the controllers are written to a single page (the default).
+	 */
+	public static final String OUTPUT_MODE_SINGLE_PAGE = "singlePage";
+	/**
+	 * Each controller is written to its own page, next to an index page.
+	 */
+	public static final String OUTPUT_MODE_MULTI_PAGE = "multiPage";
+	/**
+	 * 
+	 */
+	public static final String METRICS_PATH_FLAG = "-docletMetrics";
+	/**
+	 * 
+	 */
+	public static final String METRICS_TOP_N_FLAG = "-docletMetricsTopN";
+	/**
+	 * The default number of controller classes and DTO types listed in the metrics summary.
+	 */
+	public static final int METRICS_TOP_N = 10;
+	/**
+	 * 
+	 */
+	public static final String MAX_DEPTH_FLAG = "-docletMaxDepth";
+	/**
+	 * The default maximal number of nested types documented for a parameter or an example (0 means no limit).
+	 */
+	public static final int MAX_DEPTH = 0;
+	/**
+	 * 
+	 */
+	public static final String MODEL_EXPORT_PATH_FLAG = "-docletModelExport";
+	/**
+	 * 
+	 */
+	public static final String MODEL_FORMAT_FLAG = "-docletModelFormat";
+	/**
+	 * The model is exported as a single JSON document (the default).
+	 */
+	public static final String MODEL_FORMAT_JSON = "json";
+	/**
+	 * The model is exported as a JSON object per endpoint, one per line.
+	 */
+	public static final String MODEL_FORMAT_NDJSON = "ndjson";
+	/**
+	 * 
+	 */
+	public static final String OPEN_API_PATH_FLAG = "-docletOpenApi";
+	/**
+	 * 
+	 */
+	public static final String OPEN_API_FORMAT_FLAG = "-docletOpenApiFormat";
+	/**
+	 * The OpenAPI document is written as compact JSON (the default).
+	 */
+	public static final String OPEN_API_FORMAT_JSON = "json";
+	/**
+	 * The OpenAPI document is written as YAML.
+	 */
+	public static final String OPEN_API_FORMAT_YAML = "yaml";
+	/**
+	 * 
+	 */
+	public static final String CONFLUENCE_URL_FLAG = "-docletConfluenceUrl";
+	/**
+	 * 
+	 */
+	public static final String CONFLUENCE_SPACE_FLAG = "-docletConfluenceSpace";
+	/**
+	 * 
+	 */
+	public static final String CONFLUENCE_CREDENTIALS_FLAG = "-docletConfluenceCredentials";
+	/**
+	 * The environment variable holding the Confluence credentials ("username:password"),
+	 * used when {@link #CONFLUENCE_CREDENTIALS_FLAG} is not given.
+	 */
+	public static final String CONFLUENCE_CREDENTIALS_ENV = "CONFLUENCE_CREDENTIALS";
+	/**
+	 * 
+	 */
+	public static final String CONFLUENCE_TITLE_FLAG = "-docletConfluenceTitle";
+	/**
+	 * 
+	 */
+	public static final String CONFLUENCE_PARALLELISM_FLAG = "-docletConfluenceParallelism";
+	/**
+	 * The default number of pages published to Confluence concurrently.
+	 */
+	public static final int CONFLUENCE_PARALLELISM = 4;
+	/**
+	 * 
+	 */
+	public static final String CONFLUENCE_RETRIES_FLAG = "-docletConfluenceRetries";
+	/**
+	 * The default number of times a failed Confluence request is retried.
+	 */
+	public static final int CONFLUENCE_RETRIES = 3;
+	/**
+	 * 
+	 */
+	public static final String CONFLUENCE_MANIFEST_FLAG = "-docletConfluenceManifest";
+	/**
+	 * 
+	 */
+	public static final String CONFLUENCE_TIMEOUT_FLAG = "-docletConfluenceTimeout";
+	/**
+	 * The default number of seconds the run waits for the upload to Confluence to complete,
+	 * after the documentation was written.
+	 */
+	public static final int CONFLUENCE_TIMEOUT = 600;
+	/**
+	 * The size in characters of the largest documentation published to Confluence as a single page,
+	 * larger documentation is published as a page per controller.
+	 */
+	public static final long CONFLUENCE_MAX_PAGE_SIZE = 512 * 1024;
 	/**
 	 * 
 	 */
@@ -326,44 +469,40 @@ public final class RestDocConstants {
 		 */
 		DEFAULT;
 
+		private static final Map<String, DocAnnotationTypes> BY_NAME = new HashMap<String, DocAnnotationTypes>();
+
+		static {
+			BY_NAME.put(RestDocConstants.INTERNAL_METHOD_ANNOTATION, INTERNAL_METHOD_ANNOTATION);
+			BY_NAME.put(CONTROLLER_ANNOTATION, CONTROLLER);
+			BY_NAME.put(REQUEST_MAPPING_ANNOTATION, REQUEST_MAPPING);
+			BY_NAME.put(REQUEST_PARAMS_ANNOTATION, REQUEST_PARAM);
+			BY_NAME.put(REQUEST_BODY_ANNOTATION, REQUEST_BODY);
+			BY_NAME.put(RESPONSE_BODY_ANNOTATION, RESPONSE_BODY);
+			BY_NAME.put(VALID_ANNOTATION, VALID);
+			BY_NAME.put(VALIDATED_ANNOTATION, VALIDATED);
+			BY_NAME.put(MODEL_ATTRIBUTE_ANNOTATION, REQUEST_PARAM);
+			BY_NAME.put(PATH_VARIABLE_ANNOTATION, PATH_VARIABLE);
+			BY_NAME.put(JSON_RESPONSE_EXAMPLE_ANNOTATION, JSON_RESPONSE_EXAMPLE);
+			BY_NAME.put(JSON_REQUEST_EXAMPLE_ANNOTATION, JSON_REQUEST_EXAMPLE);
+			BY_NAME.put(POSSIBLE_RESPONSE_STATUS_ANNOTATION, POSSIBLE_RESPONSE_STATUS);
+			BY_NAME.put(POSSIBLE_RESPONSE_STATUSES_ANNOTATION, POSSIBLE_RESPONSE_STATUSES);
+		}
+
 		/**
 		 * 
 		 * @param annotationName .
 		 * @return The annotation type.
 		 */
 		public static DocAnnotationTypes fromName(final String annotationName) {
-			if (INTERNAL_METHOD_ANNOTATION.equals(annotationName)) {
-				return INTERNAL_METHOD_ANNOTATION;
-			} else if (CONTROLLER_ANNOTATION.equals(annotationName)) {
-				return CONTROLLER;
-			} else if (REQUEST_MAPPING_ANNOTATION.equals(annotationName)) {
-				return REQUEST_MAPPING;
-			} else if (REQUEST_PARAMS_ANNOTATION.equals(annotationName)) {
-				return REQUEST_PARAM;
-			} else if (REQUEST_BODY_ANNOTATION.equals(annotationName)) {
-				return REQUEST_BODY;
-			} else if (RESPONSE_BODY_ANNOTATION.equals(annotationName)) {
-				return RESPONSE_BODY;
-			} else if (VALID_ANNOTATION.equals(annotationName)) {
-				return VALID;
-			} else if (VALIDATED_ANNOTATION.equals(annotationName)) {
-				return VALIDATED;
-			} else if (MODEL_ATTRIBUTE_ANNOTATION.equals(annotationName)) {
-				return REQUEST_PARAM;
-			} else if (PATH_VARIABLE_ANNOTATION.equals(annotationName)) {
-				return PATH_VARIABLE;
-			} else if (JSON_RESPONSE_EXAMPLE_ANNOTATION.equals(annotationName)) {
-				return JSON_RESPONSE_EXAMPLE;
-			} else if (JSON_REQUEST_EXAMPLE_ANNOTATION.equals(annotationName)) {
-				return JSON_REQUEST_EXAMPLE;
-			} else if (POSSIBLE_RESPONSE_STATUS_ANNOTATION.equals(annotationName)) {
-				return POSSIBLE_RESPONSE_STATUS;
-			} else if (POSSIBLE_RESPONSE_STATUSES_ANNOTATION
-					.endsWith(annotationName)) {
+			DocAnnotationTypes type = BY_NAME.get(annotationName);
+			if (type != null) {
+				return type;
+			}
+			// Kept from the former lookup, which matched any suffix of PossibleResponseStatuses
+			if (annotationName != null && POSSIBLE_RESPONSE_STATUSES_ANNOTATION.endsWith(annotationName)) {
 				return POSSIBLE_RESPONSE_STATUSES;
-			} else {
-				return DEFAULT;
 			}
+			return DEFAULT;
 		}
 
 		/**
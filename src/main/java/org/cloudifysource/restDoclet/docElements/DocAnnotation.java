@@ -24,7 +24,6 @@ import org.cloudifysource.restDoclet.generation.Utils;
 
 import com.sun.javadoc.AnnotationDesc;
 import com.sun.javadoc.AnnotationValue;
-import com.sun.tools.javadoc.AnnotationDescImpl;
 
 /**
  * 
@@ -33,10 +32,12 @@ import com.sun.tools.javadoc.AnnotationDescImpl;
  */
 public class DocAnnotation {
 	private final String name;
+	private final DocAnnotationTypes type;
 	private final Map<String, Object> attributes;
 
 	public DocAnnotation(final String name) {
 		this.name = name;
+		type = DocAnnotationTypes.fromName(name);
 		attributes = new HashMap<String, Object>();
 	}
 
@@ -44,6 +45,14 @@ public class DocAnnotation {
 		return name;
 	}
 
+	/**
+	 * 
+	 * @return The type of the annotation, resolved from its name once.
+	 */
+	public DocAnnotationTypes getType() {
+		return type;
+	}
+
 	/**
 	 * 
 	 * @param name .
@@ -68,10 +77,10 @@ public class DocAnnotation {
 			AnnotationValue[] values = (AnnotationValue[]) value;
 			Object firstValue = values[0].value();
 			Object constractedValues = null;
-			if (firstValue instanceof AnnotationDescImpl) {
+			if (firstValue instanceof AnnotationDesc) {
 				Class<?> annotationClass = 
 						DocAnnotationTypes.getAnnotationClass(
-								((AnnotationDescImpl) firstValue).annotationType().typeName());
+								((AnnotationDesc) firstValue).annotationType().typeName());
 				constractedValues = Array.newInstance(annotationClass, values.length);	
 			} else {
 				constractedValues = Array.newInstance(firstValue.getClass(),
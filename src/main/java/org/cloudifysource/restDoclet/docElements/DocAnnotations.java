@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.docElements;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudifysource.restDoclet.constants.RestDocConstants.DocAnnotationTypes;
+
+/**
+ * The annotations of a program element, in declaration order, indexed by their type. <br />
+ * When an element has several annotations of the same type, the first one is returned by the typed accessors.
+ * The list cannot be modified, the attributes of its annotations can.
+ *
+ * @since 0.5.3
+ */
+public final class DocAnnotations extends AbstractList<DocAnnotation> {
+	private final List<DocAnnotation> annotations;
+	private final Map<DocAnnotationTypes, DocAnnotation> byType =
+			new EnumMap<DocAnnotationTypes, DocAnnotation>(DocAnnotationTypes.class);
+
+	/**
+	 * Creates an empty instance.
+	 */
+	public DocAnnotations() {
+		this.annotations = new ArrayList<DocAnnotation>(0);
+	}
+
+	/**
+	 * 
+	 * @param annotations .
+	 */
+	public DocAnnotations(final Collection<DocAnnotation> annotations) {
+		this.annotations = new ArrayList<DocAnnotation>(annotations);
+		for (DocAnnotation annotation : this.annotations) {
+			if (!byType.containsKey(annotation.getType())) {
+				byType.put(annotation.getType(), annotation);
+			}
+		}
+	}
+
+	@Override
+	public DocAnnotation get(final int index) {
+		return annotations.get(index);
+	}
+
+	@Override
+	public int size() {
+		return annotations.size();
+	}
+
+	/**
+	 * 
+	 * @param type .
+	 * @return The first annotation of the given type, null if there is none.
+	 */
+	public DocAnnotation get(final DocAnnotationTypes type) {
+		return byType.get(type);
+	}
+
+	/**
+	 * 
+	 * @param type .
+	 * @return true if there is an annotation of the given type.
+	 */
+	public boolean contains(final DocAnnotationTypes type) {
+		return byType.containsKey(type);
+	}
+
+	public DocRequestMappingAnnotation getRequestMapping() {
+		return (DocRequestMappingAnnotation) byType.get(DocAnnotationTypes.REQUEST_MAPPING);
+	}
+
+	/**
+	 * 
+	 * @return The RequestParam annotation, or the ModelAttribute annotation, which is handled the same way.
+	 */
+	public DocRequestParamAnnotation getRequestParam() {
+		return (DocRequestParamAnnotation) byType.get(DocAnnotationTypes.REQUEST_PARAM);
+	}
+
+	public DocAnnotation getRequestBody() {
+		return byType.get(DocAnnotationTypes.REQUEST_BODY);
+	}
+
+	public DocJsonRequestExample getJsonRequestExample() {
+		return (DocJsonRequestExample) byType.get(DocAnnotationTypes.JSON_REQUEST_EXAMPLE);
+	}
+
+	public DocJsonResponseExample getJsonResponseExample() {
+		return (DocJsonResponseExample) byType.get(DocAnnotationTypes.JSON_RESPONSE_EXAMPLE);
+	}
+
+	public DocPossibleResponseStatusAnnotation getPossibleResponseStatus() {
+		return (DocPossibleResponseStatusAnnotation) byType.get(DocAnnotationTypes.POSSIBLE_RESPONSE_STATUS);
+	}
+
+	public DocPossibleResponseStatusesAnnotation getPossibleResponseStatuses() {
+		return (DocPossibleResponseStatusesAnnotation) byType.get(DocAnnotationTypes.POSSIBLE_RESPONSE_STATUSES);
+	}
+}
@@ -20,6 +20,8 @@ import java.util.SortedMap;
 
 /**
  * This class represents a Controller class.
+ * The controllers of a class that is mapped to several URIs share the same methods,
+ * each controller is a view of them under its own URI.
  * @author yael
  *
  */
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.docElements;
+
+/**
+ * This class represents the page of a single controller in the multi-page output,
+ * as it is listed in the index page.
+ *
+ * @since 0.5.3
+ */
+public class DocControllerPage {
+	private final String name;
+	private final String uri;
+	private final String description;
+	private final String fileName;
+
+	/**
+	 *
+	 * @param name The controller's name.
+	 * @param uri The controller's URI.
+	 * @param description The controller's description.
+	 * @param fileName The name of the page file, relative to the index page.
+	 */
+	public DocControllerPage(final String name, final String uri, final String description, final String fileName) {
+		this.name = name;
+		this.uri = uri;
+		this.description = description;
+		this.fileName = fileName;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getUri() {
+		return uri;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	@Override
+	public String toString() {
+		return "Page " + fileName + " of controller " + name + ", URI = " + uri;
+	}
+}
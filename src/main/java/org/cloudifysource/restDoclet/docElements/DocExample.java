@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.docElements;
+
+/**
+ * This class represents a request or a response example that is generated the first time it is read. <br />
+ * Templates and exports that do not show the examples never generate them.
+ * The example is generated once, also when it is read by several threads at a time.
+ *
+ * @since 0.5.3
+ */
+public abstract class DocExample {
+	private volatile boolean isGenerated;
+	private String example;
+
+	/**
+	 *
+	 * @param example .
+	 * @return An example that was already generated.
+	 */
+	public static DocExample of(final String example) {
+		DocExample docExample = new DocExample() {
+			@Override
+			protected String generate() {
+				return example;
+			}
+		};
+		docExample.example = example;
+		docExample.isGenerated = true;
+		return docExample;
+	}
+
+	/**
+	 *
+	 * @return The example, generated on the first call.
+	 */
+	public String get() {
+		if (!isGenerated) {
+			synchronized (this) {
+				if (!isGenerated) {
+					example = generate();
+					isGenerated = true;
+				}
+			}
+		}
+		return example;
+	}
+
+	/**
+	 *
+	 * @return The example, may be null.
+	 */
+	protected abstract String generate();
+
+	@Override
+	public String toString() {
+		return get();
+	}
+}
@@ -42,8 +42,8 @@ public class DocHttpMethod {
 	private DocJsonResponseExample jsonResponseExample;
 	private List<DocPossibleResponseStatusAnnotation> possibleResponseStatuses;
 	
-	private String requestExample;
-	private String responseExample;
+	private DocExample requestExample;
+	private DocExample responseExample;
 
 
 	public DocHttpMethod(final String methodSignatureName, final String requestMethod) {
@@ -51,6 +51,28 @@ public class DocHttpMethod {
 		this.httpMethodName = requestMethod;
 	}
 
+	/**
+	 * Creates the documentation of another HTTP method of the same handler method. <br />
+	 * Shares the parameters, the return details, the examples and the possible response statuses
+	 * of the given HTTP method, an example is generated once for both.
+	 * @param other The documentation of the handler method for another HTTP method.
+	 * @param requestMethod The HTTP method.
+	 */
+	public DocHttpMethod(final DocHttpMethod other, final String requestMethod) {
+		this(other.methodSignatureName, requestMethod);
+		this.description = other.description;
+		this.params = other.params;
+		this.annotatedParams = other.annotatedParams;
+		this.requestBodyParameter = other.requestBodyParameter;
+		this.requestParams = other.requestParams;
+		this.returnDetails = other.returnDetails;
+		this.jsonRequestExample = other.jsonRequestExample;
+		this.jsonResponseExample = other.jsonResponseExample;
+		this.possibleResponseStatuses = other.possibleResponseStatuses;
+		this.requestExample = other.requestExample;
+		this.responseExample = other.responseExample;
+	}
+
 	public String getMethodSignatureName() {
 		return methodSignatureName;
 	}
@@ -149,19 +171,43 @@ public class DocHttpMethod {
 		return possibleResponseStatuses;
 	}
 	
+	/**
+	 *
+	 * @return The request example, generated on the first call.
+	 */
 	public String getRequestExample() {
-		return requestExample;
+		return requestExample == null ? null : requestExample.get();
 	}
 
 	public void setRequestExample(final String requestExample) {
+		this.requestExample = DocExample.of(requestExample);
+	}
+
+	/**
+	 *
+	 * @param requestExample The request example, generated when it is first read.
+	 */
+	public void setRequestExample(final DocExample requestExample) {
 		this.requestExample = requestExample;
 	}
 
+	/**
+	 *
+	 * @return The response example, generated on the first call.
+	 */
 	public String getResponseExample() {
-		return responseExample;
+		return responseExample == null ? null : responseExample.get();
 	}
 
 	public void setResponseExample(final String responseExample) {
+		this.responseExample = DocExample.of(responseExample);
+	}
+
+	/**
+	 *
+	 * @param responseExample The response example, generated when it is first read.
+	 */
+	public void setResponseExample(final DocExample responseExample) {
 		this.responseExample = responseExample;
 	}
 
@@ -196,12 +242,12 @@ public class DocHttpMethod {
 		if (jsonRequestExample != null) {
 			str.append("Request example: ").append(jsonRequestExample).append('\n');
 		} else {
-			str.append("Request example: ").append(requestExample).append('\n');
+			str.append("Request example: ").append(getRequestExample()).append('\n');
 		}
 		if (jsonResponseExample != null) {
 			str.append("Response example: ").append(jsonResponseExample).append('\n');
 		} else {
-			str.append("Response example: ").append(responseExample).append('\n');
+			str.append("Response example: ").append(getResponseExample()).append('\n');
 		}
 
 		if (possibleResponseStatuses != null) {
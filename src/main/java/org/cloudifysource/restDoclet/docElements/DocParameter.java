@@ -124,8 +124,7 @@ public class DocParameter {
 			if (annotationName.equals(RestDocConstants.MODEL_ATTRIBUTE_ANNOTATION)) {
 				annotationName = RestDocConstants.REQUEST_PARAMS_ANNOTATION;
 			}
-			DocAnnotationTypes docAnnotationType = DocAnnotationTypes
-					.fromName(annotationName);
+			DocAnnotationTypes docAnnotationType = docAnnotation.getType();
 			if (docAnnotationType == DocAnnotationTypes.REQUEST_PARAM) {
 				if (!(docAnnotation instanceof DocRequestParamAnnotation)) {
 					throw new ClassCastException("Annotation type is "
@@ -17,7 +17,7 @@ package org.cloudifysource.restDoclet.docElements;
 
 import org.cloudifysource.restDoclet.constants.RestDocConstants;
 
-import com.sun.tools.javadoc.FieldDocImpl;
+import com.sun.javadoc.FieldDoc;
 
 /**
  * 
@@ -77,7 +77,7 @@ public class DocRequestMappingAnnotation extends DocAnnotation {
 			}
 		}
 		if (RestDocConstants.REQUEST_MAPPING_METHOD.equals(shortAttrName)) {
-			FieldDocImpl[] methodArray = (FieldDocImpl[]) attrValue;
+			FieldDoc[] methodArray = (FieldDoc[]) attrValue;
 			method = new String[methodArray.length];
 			for (int i = 0; i < methodArray.length; i++) {
 				method[i] = methodArray[i].name();
@@ -16,7 +16,6 @@
 package org.cloudifysource.restDoclet.exampleGenerators;
 
 import org.apache.commons.lang.ClassUtils;
-import org.codehaus.jackson.map.ObjectMapper;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.sun.javadoc.Type;
@@ -47,7 +46,7 @@ public class DocDefaultExampleGenerator implements
 		if (newInstance == null) {
 			newInstance = classToInstantiate.newInstance();
 		}
-		return new ObjectMapper().writeValueAsString(newInstance);
+		return JsonSerialization.toJson(newInstance);
 	}
 
 	@Override
@@ -18,6 +18,8 @@ package org.cloudifysource.restDoclet.exampleGenerators;
 import com.sun.javadoc.Type;
 
 /**
+ * Implementations may use {@link JsonSerialization} to serialize their examples
+ * with the doclet's shared mapper.
  * 
  * @author yael
  * @since 0.5.0
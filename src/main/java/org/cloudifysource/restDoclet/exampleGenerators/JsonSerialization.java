@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.exampleGenerators;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.map.ObjectWriter;
+
+/**
+ * The JSON serialization shared by the whole doclet, including the {@link IDocExampleGenerator} implementations.
+ * <br />
+ * A single mapper is kept, so the serializers it looks up are cached once for all the examples.
+ * The mapper and its factory are not exposed, so no caller can reconfigure them for the others:
+ * JSON is read and written through the methods of this class only, which may be called by several threads.
+ * The pretty printer keeps the nesting level of the value being written,
+ * so each indented value is written with its own printer.
+ *
+ * @since 0.5.3
+ */
+public final class JsonSerialization {
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final JsonFactory FACTORY = MAPPER.getJsonFactory();
+	private static final ObjectWriter WRITER = MAPPER.writer();
+
+	private JsonSerialization() {
+	}
+
+	/**
+	 *
+	 * @param out .
+	 * @return A new generator writing to the given writer, its objects are written by the shared mapper.
+	 * @throws IOException .
+	 */
+	public static JsonGenerator createGenerator(final Writer out) throws IOException {
+		return FACTORY.createJsonGenerator(out);
+	}
+
+	/**
+	 *
+	 * @param out .
+	 * @return A new generator writing UTF-8 to the given stream, its objects are written by the shared mapper.
+	 * @throws IOException .
+	 */
+	public static JsonGenerator createGenerator(final OutputStream out) throws IOException {
+		return FACTORY.createJsonGenerator(out, JsonEncoding.UTF8);
+	}
+
+	/**
+	 *
+	 * @param file .
+	 * @param value .
+	 * @throws IOException .
+	 */
+	public static void write(final File file, final Object value) throws IOException {
+		WRITER.writeValue(file, value);
+	}
+
+	/**
+	 *
+	 * @param out .
+	 * @param value .
+	 * @throws IOException .
+	 */
+	public static void write(final Writer out, final Object value) throws IOException {
+		WRITER.writeValue(out, value);
+	}
+
+	/**
+	 *
+	 * @param file A file holding a JSON object.
+	 * @return The object.
+	 * @throws IOException .
+	 */
+	@SuppressWarnings("unchecked")
+	public static Map<String, Object> readObject(final File file) throws IOException {
+		return MAPPER.readValue(file, Map.class);
+	}
+
+	/**
+	 *
+	 * @param json .
+	 * @return The tree of the JSON.
+	 * @throws IOException .
+	 */
+	public static JsonNode readTree(final String json) throws IOException {
+		return MAPPER.readTree(json);
+	}
+
+	/**
+	 *
+	 * @param in .
+	 * @return The tree of the JSON read from the given reader.
+	 * @throws IOException .
+	 */
+	public static JsonNode readTree(final Reader in) throws IOException {
+		JsonParser parser = FACTORY.createJsonParser(in);
+		try {
+			return MAPPER.readTree(parser);
+		} finally {
+			parser.close();
+		}
+	}
+
+	/**
+	 *
+	 * @param value .
+	 * @return The value in compact JSON format.
+	 * @throws IOException .
+	 */
+	public static String toJson(final Object value) throws IOException {
+		return WRITER.writeValueAsString(value);
+	}
+
+	/**
+	 *
+	 * @param value .
+	 * @return The value in indented JSON format.
+	 * @throws IOException .
+	 */
+	public static String toIndentedJson(final Object value) throws IOException {
+		StringWriter out = new StringWriter();
+		JsonGenerator gen = FACTORY.createJsonGenerator(out);
+		try {
+			gen.useDefaultPrettyPrinter();
+			MAPPER.writeValue(gen, value);
+		} finally {
+			gen.close();
+		}
+		return out.toString();
+	}
+
+	/**
+	 *
+	 * @param json A JSON string.
+	 * @return The same JSON, indented.
+	 * @throws IOException .
+	 */
+	public static String indent(final String json) throws IOException {
+		JsonParser parser = FACTORY.createJsonParser(json);
+		try {
+			JsonNode node = MAPPER.readTree(parser);
+			return toIndentedJson(node);
+		} finally {
+			parser.close();
+		}
+	}
+}
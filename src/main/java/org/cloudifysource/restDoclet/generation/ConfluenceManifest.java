@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.cloudifysource.restDoclet.exampleGenerators.JsonSerialization;
+
+/**
+ * Keeps on disk the Confluence pages published by the previous runs, with the hash of their content,
+ * so a page whose content did not change is not uploaded again. <br />
+ * For each page title the manifest records the id of the page, its version and the hash of its content
+ * (including its parent), so a changed page is updated to the next version without looking it up first.
+ * The manifest of another Confluence space is treated as empty.
+ * A page edited in Confluence after it was published is only overwritten once its generated content changes.
+ * The manifest may be used by several threads.
+ *
+ * @since 0.5.3
+ */
+final class ConfluenceManifest {
+	private static final Logger logger = Logger.getLogger(ConfluenceManifest.class.getName());
+
+	private static final String TARGET = "target";
+	private static final String PAGES = "pages";
+	private static final String ID = "id";
+	private static final String VERSION = "version";
+	private static final String HASH = "hash";
+
+	private final File file;
+	private final String target;
+	private final Map<String, Entry> pages;
+
+	private ConfluenceManifest(final File file, final String target, final Map<String, Entry> pages) {
+		this.file = file;
+		this.target = target;
+		this.pages = pages;
+	}
+
+	/**
+	 * Loads the pages published by the previous runs.
+	 * A missing or unreadable file, or a file written for another space, is treated as empty.
+	 *
+	 * @param file The manifest file.
+	 * @param baseUrl The base URL of Confluence.
+	 * @param space The key of the space the pages are published to.
+	 * @return The manifest.
+	 */
+	@SuppressWarnings("unchecked")
+	static ConfluenceManifest load(final File file, final String baseUrl, final String space) {
+		String target = baseUrl + " " + space;
+		Map<String, Entry> pages = new TreeMap<>();
+		if (file.isFile()) {
+			try {
+				Map<String, Object> content = JsonSerialization.readObject(file);
+				if (target.equals(content.get(TARGET))) {
+					Map<String, Map<String, Object>> entries = (Map<String, Map<String, Object>>) content.get(PAGES);
+					for (Map.Entry<String, Map<String, Object>> entry : entries.entrySet()) {
+						Map<String, Object> page = entry.getValue();
+						pages.put(entry.getKey(), new Entry((String) page.get(ID),
+								((Number) page.get(VERSION)).intValue(), (String) page.get(HASH)));
+					}
+				} else {
+					logger.log(Level.INFO, "The Confluence manifest " + file.getAbsolutePath()
+							+ " was written for another space, uploading all the pages.");
+				}
+			} catch (Exception e) {
+				logger.log(Level.WARNING, "Could not read the Confluence manifest " + file.getAbsolutePath()
+						+ ", uploading all the pages. Exception was: " + e);
+				pages.clear();
+			}
+		}
+		return new ConfluenceManifest(file, target, pages);
+	}
+
+	/**
+	 *
+	 * @param body The content of the page.
+	 * @param parentId The id of the parent page, may be null.
+	 * @return The hash of the page's content.
+	 */
+	static String hash(final String body, final String parentId) {
+		return DigestUtils.sha1Hex(parentId + "\n" + body);
+	}
+
+	/**
+	 *
+	 * @param title .
+	 * @return The page published by the previous runs, null if there is none.
+	 */
+	synchronized Entry get(final String title) {
+		return pages.get(title);
+	}
+
+	/**
+	 * Records a published page.
+	 *
+	 * @param title .
+	 * @param entry .
+	 */
+	synchronized void put(final String title, final Entry entry) {
+		pages.put(title, entry);
+	}
+
+	/**
+	 * Forgets a page, so it is looked up again on its next upload.
+	 *
+	 * @param title .
+	 */
+	synchronized void remove(final String title) {
+		pages.remove(title);
+	}
+
+	/**
+	 * Writes the manifest.
+	 *
+	 * @throws IOException .
+	 */
+	synchronized void save() throws IOException {
+		Map<String, Object> entries = new TreeMap<>();
+		for (Map.Entry<String, Entry> page : pages.entrySet()) {
+			Map<String, Object> entry = new HashMap<>();
+			entry.put(ID, page.getValue().getId());
+			entry.put(VERSION, page.getValue().getVersion());
+			entry.put(HASH, page.getValue().getHash());
+			entries.put(page.getKey(), entry);
+		}
+		Map<String, Object> content = new LinkedHashMap<>();
+		content.put(TARGET, target);
+		content.put(PAGES, entries);
+		File parentFile = file.getAbsoluteFile().getParentFile();
+		if (parentFile != null) {
+			parentFile.mkdirs();
+		}
+		JsonSerialization.write(file, content);
+	}
+
+	/**
+	 * A published page.
+	 */
+	static final class Entry {
+		private final String id;
+		private final int version;
+		private final String hash;
+
+		Entry(final String id, final int version, final String hash) {
+			this.id = id;
+			this.version = version;
+			this.hash = hash;
+		}
+
+		String getId() {
+			return id;
+		}
+
+		int getVersion() {
+			return version;
+		}
+
+		String getHash() {
+			return hash;
+		}
+	}
+}
@@ -0,0 +1,503 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpEntityEnclosingRequestBase;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpPut;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.utils.URIBuilder;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.util.EntityUtils;
+import org.cloudifysource.restDoclet.exampleGenerators.JsonSerialization;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonNode;
+
+import com.googlecode.htmlcompressor.compressor.HtmlCompressor;
+
+/**
+ * Publishes pages to a Confluence space through its REST API. <br />
+ * A page is created under its parent page, or updated if the space already has a page with its title.
+ * When a manifest is given, a page whose content did not change since it was last published is skipped,
+ * and a changed page is updated without looking it up (see {@link ConfluenceManifest}).
+ * The JSON body of a request is written straight to the connection.
+ * The pages are published concurrently by a bounded number of threads, sharing a pool of keep-alive connections.
+ * The pages are taken from a producer as threads become free, so no more pages are held than are being published.
+ * A look-up or an update that fails with an I/O error, a server error or a "too many requests" status is retried
+ * with an exponential back-off, other failures are not retried.
+ * A create is never sent twice as is, since it may have created the page before it failed:
+ * the page is looked up again before the next attempt, and updated if it exists. <br />
+ * The publisher must be closed once the pages are published.
+ *
+ * @since 0.5.3
+ */
+final class ConfluencePublisher implements Closeable {
+	private static final Logger logger = Logger.getLogger(ConfluencePublisher.class.getName());
+
+	private static final String CONTENT_PATH = "/rest/api/content";
+	private static final String STORAGE_REPRESENTATION = "storage";
+	private static final int TOO_MANY_REQUESTS = 429;
+	private static final int NOT_FOUND = 404;
+	private static final int CONFLICT = 409;
+	private static final int CONNECT_TIMEOUT_MILLIS = 10 * 1000;
+	private static final int SOCKET_TIMEOUT_MILLIS = 60 * 1000;
+	private static final long RETRY_DELAY_MILLIS = 500;
+	private static final String BODY_START = "<body>";
+	private static final String BODY_END = "</body>";
+	/**
+	 * The content of a page that lists its child pages.
+	 */
+	static final String CHILDREN_MACRO = "<ac:structured-macro ac:name=\"children\" />";
+
+	// Reads the JSON body of a successful response
+	private static final ResponseHandler<JsonNode> JSON_HANDLER = new ResponseHandler<JsonNode>() {
+		@Override
+		public JsonNode handleResponse(final HttpResponse response) throws IOException {
+			int status = response.getStatusLine().getStatusCode();
+			HttpEntity entity = response.getEntity();
+			if (status < 200 || status >= 300) {
+				String body = entity == null ? "" : EntityUtils.toString(entity, StandardCharsets.UTF_8);
+				throw new StatusException(status, body);
+			}
+			if (entity == null) {
+				return JsonSerialization.readTree("{}");
+			}
+			InputStream content = entity.getContent();
+			try {
+				return JsonSerialization.readTree(new InputStreamReader(content, StandardCharsets.UTF_8));
+			} finally {
+				content.close();
+			}
+		}
+	};
+
+	private final String baseUrl;
+	private final String space;
+	private final int parallelism;
+	private final int retries;
+	private final CloseableHttpClient client;
+	private final ConfluenceManifest manifest;
+	private final AtomicInteger uploadedPages = new AtomicInteger();
+	private final AtomicInteger skippedPages = new AtomicInteger();
+
+	/**
+	 *
+	 * @param baseUrl The base URL of Confluence.
+	 * @param space The key of the space the pages are published to.
+	 * @param credentials The credentials, in the "username:password" form.
+	 * @param parallelism The maximal number of pages published concurrently.
+	 * @param retries The number of times a failed request is retried.
+	 * @param manifest The pages published by the previous runs, null to upload all the pages.
+	 */
+	ConfluencePublisher(final String baseUrl, final String space, final String credentials,
+						final int parallelism, final int retries, final ConfluenceManifest manifest) {
+		this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+		this.space = space;
+		this.parallelism = parallelism;
+		this.retries = retries;
+		this.manifest = manifest;
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(parallelism);
+		connectionManager.setDefaultMaxPerRoute(parallelism);
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+				.setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+				.build();
+		String authorization = "Basic "
+				+ Base64.encodeBase64String(credentials.getBytes(StandardCharsets.UTF_8));
+		client = HttpClients.custom()
+				.setConnectionManager(connectionManager)
+				.setDefaultRequestConfig(requestConfig)
+				// The requests are retried by the publisher only
+				.disableAutomaticRetries()
+				.setDefaultHeaders(Collections.singletonList(new BasicHeader(HttpHeaders.AUTHORIZATION, authorization)))
+				.build();
+	}
+
+	/**
+	 * Converts a generated HTML page to the Confluence storage format:
+	 * the page is minimized and only the content of its body is kept.
+	 *
+	 * @param html .
+	 * @return The content of the page.
+	 */
+	static String toStorageFormat(final String html) {
+		String compressed = new HtmlCompressor().compress(html);
+		int start = compressed.indexOf(BODY_START);
+		int end = compressed.lastIndexOf(BODY_END);
+		if (start < 0 || end < start) {
+			return compressed;
+		}
+		return compressed.substring(start + BODY_START.length(), end);
+	}
+
+	/**
+	 * Creates or updates a page, unless its content did not change since it was last published.
+	 *
+	 * @param page .
+	 * @param parentId The id of the parent page, null to publish the page at the top of the space.
+	 * @return The id of the page.
+	 * @throws IOException If the page could not be published.
+	 */
+	String publish(final Page page, final String parentId) throws IOException {
+		String hash = ConfluenceManifest.hash(page.getBody(), parentId);
+		ConfluenceManifest.Entry previous = manifest == null ? null : manifest.get(page.getTitle());
+		if (previous != null) {
+			if (hash.equals(previous.getHash())) {
+				skippedPages.incrementAndGet();
+				logger.log(Level.FINE, "The Confluence page " + page.getTitle() + " did not change, skipping it.");
+				return previous.getId();
+			}
+			try {
+				return upload(new HttpPut(baseUrl + CONTENT_PATH + "/" + previous.getId()), page, parentId,
+						previous.getId(), previous.getVersion() + 1, hash);
+			} catch (StatusException e) {
+				if (!e.isStale()) {
+					throw e;
+				}
+				// The page was removed or edited in Confluence since it was recorded
+				manifest.remove(page.getTitle());
+				logger.log(Level.FINE, "The recorded version of the Confluence page " + page.getTitle()
+						+ " is stale, looking the page up. Exception was: " + e);
+			}
+		}
+
+		for (int attempt = 0; ; attempt++) {
+			JsonNode results = execute(new HttpGet(getContentUri(page.getTitle()))).path("results");
+			if (results.size() > 0) {
+				String id = results.get(0).path("id").asText();
+				int version = results.get(0).path("version").path("number").asInt();
+				return upload(new HttpPut(baseUrl + CONTENT_PATH + "/" + id), page, parentId, id, version + 1, hash);
+			}
+			HttpPost create = new HttpPost(baseUrl + CONTENT_PATH);
+			try {
+				return upload(create, page, parentId, null, 1, hash);
+			} catch (IOException e) {
+				// The page may have been created before the request failed, it is looked up again
+				if (!isRetryable(e) || attempt >= retries) {
+					throw e;
+				}
+				backOff(create, attempt, e);
+			}
+		}
+	}
+
+	// Creates the page if the id is null, otherwise updates it to the given version
+	private String upload(final HttpEntityEnclosingRequestBase request, final Page page, final String parentId,
+						  final String id, final int version, final String hash) throws IOException {
+		request.setEntity(new PageEntity(page, space, parentId, id, version));
+		JsonNode published = execute(request);
+		String publishedId = published.path("id").asText();
+		int publishedVersion = published.path("version").path("number").asInt();
+		if (manifest != null) {
+			manifest.put(page.getTitle(), new ConfluenceManifest.Entry(publishedId,
+					publishedVersion > 0 ? publishedVersion : version, hash));
+		}
+		uploadedPages.incrementAndGet();
+		logger.log(Level.INFO, (id == null ? "Created" : "Updated") + " the Confluence page " + page.getTitle());
+		return publishedId;
+	}
+
+	/**
+	 *
+	 * @return The number of pages created or updated so far.
+	 */
+	int getUploadedPages() {
+		return uploadedPages.get();
+	}
+
+	/**
+	 *
+	 * @return The number of pages skipped so far, since their content did not change.
+	 */
+	int getSkippedPages() {
+		return skippedPages.get();
+	}
+
+	/**
+	 * Creates or updates the pages concurrently, under the same parent.
+	 * The next page is produced once a thread is free to publish it,
+	 * so at most as many pages as the parallelism are held at a time.
+	 * A page that cannot be published does not stop the others.
+	 *
+	 * @param pages The producer of the pages.
+	 * @param parentId The id of the parent page, null to publish the pages at the top of the space.
+	 * @throws IOException If a page could not be produced, or any of the pages could not be published.
+	 */
+	void publishAll(final PageProducer pages, final String parentId) throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		final Semaphore freeThreads = new Semaphore(parallelism);
+		final AtomicInteger failures = new AtomicInteger();
+		int producedPages = 0;
+		try {
+			while (true) {
+				freeThreads.acquire();
+				final Page page;
+				try {
+					page = pages.next();
+				} catch (IOException e) {
+					freeThreads.release();
+					throw e;
+				}
+				if (page == null) {
+					freeThreads.release();
+					break;
+				}
+				producedPages++;
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							publish(page, parentId);
+						} catch (Exception e) {
+							failures.incrementAndGet();
+							logger.log(Level.WARNING, "Could not publish the Confluence page " + page.getTitle()
+									+ ". Exception was: " + e);
+						} finally {
+							freeThreads.release();
+						}
+					}
+				});
+			}
+			// ALL THE THREADS ARE FREE ONCE ALL THE PAGES ARE PUBLISHED
+			freeThreads.acquire(parallelism);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while publishing the Confluence pages", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		if (failures.get() > 0) {
+			throw new IOException("Could not publish " + failures.get() + " of " + producedPages
+					+ " Confluence pages");
+		}
+	}
+
+	private URI getContentUri(final String title) throws IOException {
+		try {
+			return new URIBuilder(baseUrl + CONTENT_PATH)
+					.addParameter("spaceKey", space)
+					.addParameter("title", title)
+					.addParameter("expand", "version")
+					.build();
+		} catch (URISyntaxException e) {
+			throw new IOException("Illegal Confluence URL " + baseUrl, e);
+		}
+	}
+
+	// Executes the request, retrying the failures that may be temporary unless the request creates a page
+	private JsonNode execute(final HttpUriRequest request) throws IOException {
+		boolean isIdempotent = !HttpPost.METHOD_NAME.equals(request.getMethod());
+		for (int attempt = 0; ; attempt++) {
+			try {
+				return client.execute(request, JSON_HANDLER);
+			} catch (IOException e) {
+				if (!isIdempotent || !isRetryable(e) || attempt >= retries) {
+					throw e;
+				}
+				backOff(request, attempt, e);
+			}
+		}
+	}
+
+	private static boolean isRetryable(final IOException e) {
+		return !(e instanceof StatusException) || ((StatusException) e).isRetryable();
+	}
+
+	private static void backOff(final HttpUriRequest request, final int attempt, final IOException e)
+			throws IOException {
+		long delay = RETRY_DELAY_MILLIS << attempt;
+		logger.log(Level.FINE, request.getMethod() + " " + request.getURI() + " failed, retrying in "
+				+ delay + " ms. Exception was: " + e);
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while retrying " + request.getURI(), ie);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		client.close();
+	}
+
+	/**
+	 * A response with an unexpected status.
+	 */
+	private static final class StatusException extends IOException {
+		private static final long serialVersionUID = 1L;
+		private final int status;
+
+		StatusException(final int status, final String body) {
+			super("Confluence responded with status " + status + ": " + body);
+			this.status = status;
+		}
+
+		boolean isRetryable() {
+			return status >= 500 || status == TOO_MANY_REQUESTS;
+		}
+
+		boolean isStale() {
+			return status == NOT_FOUND || status == CONFLICT;
+		}
+	}
+
+	/**
+	 * A page to publish.
+	 */
+	static final class Page {
+		private final String title;
+		private final String body;
+
+		/**
+		 *
+		 * @param title .
+		 * @param body The content of the page in the storage format, see {@link #toStorageFormat(String)}.
+		 */
+		Page(final String title, final String body) {
+			this.title = title;
+			this.body = body;
+		}
+
+		String getTitle() {
+			return title;
+		}
+
+		String getBody() {
+			return body;
+		}
+	}
+
+	/**
+	 * Produces the pages to publish, one at a time.
+	 */
+	interface PageProducer {
+		/**
+		 *
+		 * @return The next page, null once all the pages were produced.
+		 * @throws IOException If the page could not be produced.
+		 */
+		Page next() throws IOException;
+	}
+
+	/**
+	 * The JSON body of a create or an update request, written straight to the connection.
+	 * The entity can be written again when the request is retried.
+	 */
+	private static final class PageEntity extends AbstractHttpEntity {
+		private final Page page;
+		private final String space;
+		private final String parentId;
+		private final String id;
+		private final int version;
+
+		PageEntity(final Page page, final String space, final String parentId, final String id,
+				   final int version) {
+			this.page = page;
+			this.space = space;
+			this.parentId = parentId;
+			this.id = id;
+			this.version = version;
+			setContentType(ContentType.APPLICATION_JSON.toString());
+			setChunked(true);
+		}
+
+		@Override
+		public boolean isRepeatable() {
+			return true;
+		}
+
+		@Override
+		public long getContentLength() {
+			return -1;
+		}
+
+		@Override
+		public InputStream getContent() {
+			throw new UnsupportedOperationException("The page is written straight to the connection");
+		}
+
+		@Override
+		public void writeTo(final OutputStream out) throws IOException {
+			JsonGenerator gen = JsonSerialization.createGenerator(out);
+			gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+			gen.writeStartObject();
+			if (id != null) {
+				gen.writeStringField("id", id);
+			}
+			gen.writeStringField("type", "page");
+			gen.writeStringField("title", page.getTitle());
+			gen.writeObjectFieldStart("space");
+			gen.writeStringField("key", space);
+			gen.writeEndObject();
+			if (parentId != null) {
+				gen.writeArrayFieldStart("ancestors");
+				gen.writeStartObject();
+				gen.writeStringField("id", parentId);
+				gen.writeEndObject();
+				gen.writeEndArray();
+			}
+			if (id != null) {
+				gen.writeObjectFieldStart("version");
+				gen.writeNumberField("number", version);
+				gen.writeEndObject();
+			}
+			gen.writeObjectFieldStart("body");
+			gen.writeObjectFieldStart(STORAGE_REPRESENTATION);
+			gen.writeStringField("value", page.getBody());
+			gen.writeStringField("representation", STORAGE_REPRESENTATION);
+			gen.writeEndObject();
+			gen.writeEndObject();
+			gen.writeEndObject();
+			gen.close();
+		}
+
+		@Override
+		public boolean isStreaming() {
+			return false;
+		}
+	}
+}
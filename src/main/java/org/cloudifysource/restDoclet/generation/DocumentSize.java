@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Tells whether a document is larger than a limit, as soon as it is known. <br />
+ * The characters are counted while the document is written (see {@link #countWrites(Writer)}).
+ * A document is known to be larger as soon as the count exceeds the limit,
+ * and known not to be once it was completely written (see {@link #written()}).
+ * The writing thread reports the size, other threads wait for it.
+ *
+ * @since 0.5.3
+ */
+final class DocumentSize {
+	private final long limit;
+	private final CountDownLatch known = new CountDownLatch(1);
+	private volatile boolean isLarger;
+	private volatile boolean isFailed;
+
+	/**
+	 *
+	 * @param limit The number of characters.
+	 */
+	DocumentSize(final long limit) {
+		this.limit = limit;
+	}
+
+	/**
+	 *
+	 * @param out The writer of the document.
+	 * @return A writer that counts the characters it forwards to the given writer.
+	 */
+	Writer countWrites(final Writer out) {
+		return new FilterWriter(out) {
+			private long count;
+
+			@Override
+			public void write(final int c) throws IOException {
+				super.write(c);
+				add(1);
+			}
+
+			@Override
+			public void write(final char[] cbuf, final int off, final int len) throws IOException {
+				super.write(cbuf, off, len);
+				add(len);
+			}
+
+			@Override
+			public void write(final String str, final int off, final int len) throws IOException {
+				super.write(str, off, len);
+				add(len);
+			}
+
+			private void add(final int written) {
+				count += written;
+				if (count > limit && !isLarger) {
+					isLarger = true;
+					known.countDown();
+				}
+			}
+		};
+	}
+
+	/**
+	 * The document was completely written.
+	 */
+	void written() {
+		known.countDown();
+	}
+
+	/**
+	 * The document could not be written, the waiting threads fail unless it was already known to be larger.
+	 */
+	void failed() {
+		if (known.getCount() > 0) {
+			isFailed = true;
+			known.countDown();
+		}
+	}
+
+	/**
+	 * Waits until it is known whether the document is larger than the limit.
+	 *
+	 * @return true if the document is larger than the limit.
+	 * @throws IOException If the document could not be written.
+	 * @throws InterruptedException .
+	 */
+	boolean isLargerThanLimit() throws IOException, InterruptedException {
+		known.await();
+		if (isFailed) {
+			throw new IOException("The documentation could not be written");
+		}
+		return isLarger;
+	}
+}
@@ -0,0 +1,57 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.sun.javadoc.FieldDoc;
+
+/**
+ * Indexes, for a single run, the fields of the documented classes. <br />
+ * The fields of a class are its own fields followed by those of its superclasses,
+ * up to the first Java superclass, without the constants.
+ * A class is indexed the first time its fields are needed, the lists are shared by all the threads
+ * and cannot be modified.
+ *
+ * @since 0.5.3
+ */
+final class FieldIndex {
+	private final ConcurrentMap<String, List<FieldDoc>> fields = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param className .
+	 * @return The indexed fields of the class, null if the class was not indexed yet.
+	 */
+	List<FieldDoc> get(final String className) {
+		return fields.get(className);
+	}
+
+	/**
+	 *
+	 * @param className .
+	 * @param classFields .
+	 * @return The indexed fields, those of another thread if it indexed the class first.
+	 */
+	List<FieldDoc> put(final String className, final List<FieldDoc> classFields) {
+		List<FieldDoc> unmodifiable = Collections.unmodifiableList(classFields);
+		List<FieldDoc> existing = fields.putIfAbsent(className, unmodifiable);
+		return existing == null ? unmodifiable : existing;
+	}
+}
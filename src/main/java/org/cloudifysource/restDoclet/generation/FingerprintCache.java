@@ -0,0 +1,347 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.cloudifysource.restDoclet.docElements.DocController;
+import org.cloudifysource.restDoclet.docElements.DocControllerPage;
+import org.cloudifysource.restDoclet.docElements.DocHttpMethod;
+import org.cloudifysource.restDoclet.docElements.DocMethod;
+import org.cloudifysource.restDoclet.docElements.DocParameter;
+import org.cloudifysource.restDoclet.docElements.DocReturnDetails;
+import org.cloudifysource.restDoclet.exampleGenerators.JsonSerialization;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.ParameterizedType;
+import com.sun.javadoc.SourcePosition;
+import com.sun.javadoc.Type;
+
+/**
+ * Keeps a fingerprint per controller class on disk, so a run can tell which controllers
+ * did not change since the previous run. <br />
+ * The fingerprint of a controller class covers the sources of the class, its superclasses
+ * and all the classes its documentation refers to (parameter, return and sub-parameter types).
+ * The classes a controller refers to are recorded when it is generated and re-hashed on the next run.
+ * The fingerprints of the previous run are dropped when the run settings (the doclet options
+ * and the template) change. <br />
+ * In the multi-page output the pages written for a controller class are recorded as well,
+ * so the pages of an unchanged class can be listed in the index without generating the class again.
+ * The single page output keeps nothing but the fingerprints, so it is either kept as is
+ * or, if any controller changed, generated again for all the controllers.
+ * The cache may be used by several threads.
+ *
+ * @since 0.5.3
+ */
+final class FingerprintCache {
+	private static final Logger logger = Logger.getLogger(FingerprintCache.class.getName());
+
+	private static final String SETTINGS = "settings";
+	private static final String CONTROLLERS = "controllers";
+	private static final String FINGERPRINT = "fingerprint";
+	private static final String DEPENDENCIES = "dependencies";
+	private static final String PAGES = "pages";
+	private static final String NAME = "name";
+	private static final String URI = "uri";
+	private static final String DESCRIPTION = "description";
+	private static final String FILE_NAME = "fileName";
+	private static final String MISSING_SOURCE = "-";
+
+	private final File file;
+	private final String settings;
+	private final Map<String, Map<String, Object>> previous;
+	private final Map<String, Map<String, Object>> current = new TreeMap<>();
+	private final Map<String, String> sourceHashes = new HashMap<>();
+
+	private FingerprintCache(final File file, final String settings,
+							 final Map<String, Map<String, Object>> previous) {
+		this.file = file;
+		this.settings = settings;
+		this.previous = previous;
+	}
+
+	/**
+	 * Loads the fingerprints of the previous run.
+	 * A missing or unreadable file, or a file written with other settings, is treated as empty.
+	 *
+	 * @param file The cache file.
+	 * @param settings The fingerprint of the run settings.
+	 * @return The cache.
+	 */
+	@SuppressWarnings("unchecked")
+	static FingerprintCache load(final File file, final String settings) {
+		Map<String, Map<String, Object>> previous = new HashMap<>();
+		if (file.isFile()) {
+			try {
+				Map<String, Object> content = JsonSerialization.readObject(file);
+				if (settings.equals(content.get(SETTINGS))) {
+					previous = (Map<String, Map<String, Object>>) content.get(CONTROLLERS);
+				} else {
+					logger.log(Level.INFO, "The doclet settings changed since the fingerprints in "
+							+ file.getAbsolutePath() + " were written, regenerating all the controllers.");
+				}
+			} catch (Exception e) {
+				logger.log(Level.WARNING, "Could not read the fingerprints file " + file.getAbsolutePath()
+						+ ", regenerating all the controllers. Exception was: " + e);
+			}
+		}
+		return new FingerprintCache(file, settings, previous);
+	}
+
+	/**
+	 *
+	 * @param context .
+	 * @param controllerClass .
+	 * @return true if the controller class and the classes it referred to did not change since the previous run.
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized boolean isUnchanged(final GenerationContext context, final ClassDoc controllerClass) {
+		Map<String, Object> entry = previous.get(controllerClass.qualifiedTypeName());
+		if (entry == null) {
+			return false;
+		}
+		Collection<String> dependencies = (Collection<String>) entry.get(DEPENDENCIES);
+		return fingerprint(context, dependencies).equals(entry.get(FINGERPRINT));
+	}
+
+	/**
+	 *
+	 * @param context .
+	 * @param controllerClasses All the controller classes of the run.
+	 * @return true if the previous run had the same controller classes and none of them changed.
+	 */
+	synchronized boolean isUnchanged(final GenerationContext context, final Collection<ClassDoc> controllerClasses) {
+		if (controllerClasses.size() != previous.size()) {
+			return false;
+		}
+		for (ClassDoc controllerClass : controllerClasses) {
+			if (!isUnchanged(context, controllerClass)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @param context .
+	 * @param controllerClass .
+	 * @return The pages written for the controller class by the previous run,
+	 * null if the class changed or the previous run did not write pages for it.
+	 */
+	@SuppressWarnings("unchecked")
+	synchronized List<DocControllerPage> getPages(final GenerationContext context, final ClassDoc controllerClass) {
+		if (!isUnchanged(context, controllerClass)) {
+			return null;
+		}
+		List<Map<String, String>> pages =
+				(List<Map<String, String>>) previous.get(controllerClass.qualifiedTypeName()).get(PAGES);
+		if (pages == null) {
+			return null;
+		}
+		List<DocControllerPage> docPages = new ArrayList<>(pages.size());
+		for (Map<String, String> page : pages) {
+			docPages.add(new DocControllerPage(page.get(NAME), page.get(URI), page.get(DESCRIPTION),
+					page.get(FILE_NAME)));
+		}
+		return docPages;
+	}
+
+	/**
+	 * Records the fingerprint of a controller class that was generated in this run.
+	 *
+	 * @param context .
+	 * @param controllerClass .
+	 * @param dependencies The classes the controller class refers to, see {@link #collectDependencies}.
+	 * @param pages The pages written for the class, null in the single page output.
+	 */
+	synchronized void update(final GenerationContext context, final ClassDoc controllerClass,
+							 final Set<String> dependencies, final List<DocControllerPage> pages) {
+		Map<String, Object> entry = new LinkedHashMap<>();
+		entry.put(FINGERPRINT, fingerprint(context, dependencies));
+		entry.put(DEPENDENCIES, new ArrayList<>(dependencies));
+		if (pages != null) {
+			List<Map<String, String>> pageEntries = new ArrayList<>(pages.size());
+			for (DocControllerPage page : pages) {
+				Map<String, String> pageEntry = new LinkedHashMap<>();
+				pageEntry.put(NAME, page.getName());
+				pageEntry.put(URI, page.getUri());
+				pageEntry.put(DESCRIPTION, page.getDescription());
+				pageEntry.put(FILE_NAME, page.getFileName());
+				pageEntries.add(pageEntry);
+			}
+			entry.put(PAGES, pageEntries);
+		}
+		current.put(controllerClass.qualifiedTypeName(), entry);
+	}
+
+	/**
+	 * Keeps the fingerprint of the previous run for a controller class that was not regenerated.
+	 *
+	 * @param controllerClass .
+	 */
+	synchronized void keep(final ClassDoc controllerClass) {
+		String name = controllerClass.qualifiedTypeName();
+		current.put(name, previous.get(name));
+	}
+
+	/**
+	 * Writes the fingerprints recorded in this run.
+	 *
+	 * @throws IOException .
+	 */
+	synchronized void save() throws IOException {
+		Map<String, Object> content = new LinkedHashMap<>();
+		content.put(SETTINGS, settings);
+		content.put(CONTROLLERS, current);
+		File parentFile = file.getParentFile();
+		if (parentFile != null) {
+			parentFile.mkdirs();
+		}
+		JsonSerialization.write(file, content);
+	}
+
+	private String fingerprint(final GenerationContext context, final Collection<String> dependencies) {
+		StringBuilder sources = new StringBuilder();
+		for (String dependency : new TreeSet<>(dependencies)) {
+			sources.append(dependency).append('=').append(sourceHash(context.classNamed(dependency))).append('\n');
+		}
+		return DigestUtils.sha1Hex(sources.toString());
+	}
+
+	private String sourceHash(final ClassDoc classDoc) {
+		if (classDoc == null) {
+			return MISSING_SOURCE;
+		}
+		SourcePosition position = classDoc.position();
+		if (position == null || position.file() == null) {
+			return MISSING_SOURCE;
+		}
+		String path = position.file().getAbsolutePath();
+		String hash = sourceHashes.get(path);
+		if (hash == null) {
+			hash = hashFile(position.file());
+			sourceHashes.put(path, hash);
+		}
+		return hash;
+	}
+
+	/**
+	 *
+	 * @param file .
+	 * @return The hash of the file content, or a constant value if it cannot be read.
+	 */
+	static String hashFile(final File file) {
+		InputStream input = null;
+		try {
+			input = new FileInputStream(file);
+			return DigestUtils.sha1Hex(input);
+		} catch (IOException e) {
+			return MISSING_SOURCE;
+		} finally {
+			if (input != null) {
+				try {
+					input.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param context .
+	 * @param controllerClass .
+	 * @param controllers The controllers generated from the class, may be null.
+	 * @return The names of the class, its superclasses and all the classes its controllers refer to.
+	 */
+	static Set<String> collectDependencies(final GenerationContext context, final ClassDoc controllerClass,
+										   final List<DocController> controllers) {
+		Set<String> dependencies = new TreeSet<>();
+		addClass(context, dependencies, controllerClass);
+		if (controllers == null) {
+			return dependencies;
+		}
+		Set<DocHttpMethod> visited = new HashSet<>();
+		for (DocController controller : controllers) {
+			for (DocMethod docMethod : controller.getMethods().values()) {
+				for (DocHttpMethod httpMethod : docMethod.getHttpMethods()) {
+					if (!visited.add(httpMethod)) {
+						continue;
+					}
+					if (httpMethod.getParams() != null) {
+						addParameters(context, dependencies, httpMethod.getParams());
+					}
+					DocReturnDetails returnDetails = httpMethod.getReturnDetails();
+					if (returnDetails != null) {
+						addType(context, dependencies, returnDetails.getReturnType());
+						if (returnDetails.getParamsList() != null) {
+							addParameters(context, dependencies, returnDetails.getParamsList());
+						}
+					}
+				}
+			}
+		}
+		return dependencies;
+	}
+
+	private static void addParameters(final GenerationContext context, final Set<String> dependencies,
+									  final List<DocParameter> params) {
+		for (DocParameter param : params) {
+			addType(context, dependencies, param.getType());
+		}
+	}
+
+	private static void addType(final GenerationContext context, final Set<String> dependencies, final Type type) {
+		if (type == null) {
+			return;
+		}
+		addClass(context, dependencies, context.classNamed(type.qualifiedTypeName()));
+		ParameterizedType parameterizedType = type.asParameterizedType();
+		if (parameterizedType != null) {
+			for (Type arg : parameterizedType.typeArguments()) {
+				addType(context, dependencies, arg);
+			}
+		}
+	}
+
+	// Adds the class and its superclasses
+	private static void addClass(final GenerationContext context, final Set<String> dependencies,
+								 final ClassDoc classDoc) {
+		ClassDoc cls = classDoc;
+		while (cls != null && dependencies.add(cls.qualifiedTypeName())) {
+			Type superclass = cls.superclassType();
+			cls = superclass == null ? null : context.classNamed(superclass.qualifiedTypeName());
+		}
+	}
+}
@@ -0,0 +1,324 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.cloudifysource.restDoclet.constants.RestDocConstants;
+import org.cloudifysource.restDoclet.exampleGenerators.IDocExampleGenerator;
+import org.cloudifysource.restDoclet.exampleGenerators.IRequestBodyParamFilter;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.RootDoc;
+
+/**
+ * Holds the state of a single documentation generation run. <br />
+ * The run-wide state (the javadoc model, the example generators, the request body filter,
+ * the collected enums, the field index, the type variable bindings, the type schema cache,
+ * the inherited methods cache and the metrics)
+ * is shared by all the contexts forked from the same run,
+ * while the stack of the types currently being traversed belongs to a single context.
+ * A context forked with {@link #forkWithOwnCaches()} has type schema and inherited methods caches of its own,
+ * which are released along with it.
+ * A context must therefore not be used by more than one thread at a time,
+ * use {@link #fork()} to hand work over to another thread.
+ *
+ * @since 0.5.3
+ */
+final class GenerationContext {
+	private final RootDoc documentation;
+	private final IDocExampleGenerator requestExampleGenerator;
+	private final IDocExampleGenerator responseExampleGenerator;
+	private final IRequestBodyParamFilter requestBodyParamFilter;
+	private final Set<ClassDoc> includeEnums;
+	private final TypeSchemaCache schemaCache;
+	private final InheritedMethodsCache inheritedMethodsCache;
+	private final FieldIndex fieldIndex;
+	private final TypeVariableResolver typeResolver;
+	private final GenerationMetrics metrics;
+	private final RecursionGuard paramStack;
+	private Traversal traversal = new Traversal(0);
+
+	/**
+	 *
+	 * @param documentation The javadoc model of the run.
+	 * @param requestExampleGenerator .
+	 * @param responseExampleGenerator .
+	 * @param requestBodyParamFilter .
+	 */
+	GenerationContext(final RootDoc documentation,
+					  final IDocExampleGenerator requestExampleGenerator,
+					  final IDocExampleGenerator responseExampleGenerator,
+					  final IRequestBodyParamFilter requestBodyParamFilter) {
+		this(documentation, requestExampleGenerator, responseExampleGenerator, requestBodyParamFilter,
+				GenerationMetrics.DISABLED, RestDocConstants.MAX_DEPTH);
+	}
+
+	/**
+	 *
+	 * @param documentation The javadoc model of the run.
+	 * @param requestExampleGenerator .
+	 * @param responseExampleGenerator .
+	 * @param requestBodyParamFilter .
+	 * @param metrics The metrics of the run.
+	 * @param maxDepth The maximal number of types a traversal goes through, 0 for no limit.
+	 */
+	GenerationContext(final RootDoc documentation,
+					  final IDocExampleGenerator requestExampleGenerator,
+					  final IDocExampleGenerator responseExampleGenerator,
+					  final IRequestBodyParamFilter requestBodyParamFilter,
+					  final GenerationMetrics metrics,
+					  final int maxDepth) {
+		this.documentation = documentation;
+		this.requestExampleGenerator = requestExampleGenerator;
+		this.responseExampleGenerator = responseExampleGenerator;
+		this.requestBodyParamFilter = requestBodyParamFilter;
+		this.includeEnums = Collections.synchronizedSet(new HashSet<ClassDoc>());
+		this.schemaCache = new TypeSchemaCache();
+		this.inheritedMethodsCache = new InheritedMethodsCache();
+		this.fieldIndex = new FieldIndex();
+		this.typeResolver = new TypeVariableResolver(documentation);
+		this.metrics = metrics;
+		this.paramStack = new RecursionGuard(maxDepth);
+	}
+
+	private GenerationContext(final GenerationContext parent, final boolean isSharingCaches) {
+		this.documentation = parent.documentation;
+		this.requestExampleGenerator = parent.requestExampleGenerator;
+		this.responseExampleGenerator = parent.responseExampleGenerator;
+		this.requestBodyParamFilter = parent.requestBodyParamFilter;
+		this.includeEnums = parent.includeEnums;
+		this.schemaCache = isSharingCaches ? parent.schemaCache : new TypeSchemaCache();
+		this.inheritedMethodsCache = isSharingCaches ? parent.inheritedMethodsCache : new InheritedMethodsCache();
+		this.fieldIndex = parent.fieldIndex;
+		this.typeResolver = parent.typeResolver;
+		this.metrics = parent.metrics;
+		this.paramStack = new RecursionGuard(parent.paramStack.getMaxDepth());
+	}
+
+	/**
+	 *
+	 * @return A context of the same run with an empty traversal stack.
+	 */
+	GenerationContext fork() {
+		return new GenerationContext(this, true);
+	}
+
+	/**
+	 *
+	 * @return A context of the same run with an empty traversal stack,
+	 * and empty type schema and inherited methods caches of its own.
+	 */
+	GenerationContext forkWithOwnCaches() {
+		return new GenerationContext(this, false);
+	}
+
+	RootDoc getDocumentation() {
+		return documentation;
+	}
+
+	/**
+	 *
+	 * @param qualifiedName .
+	 * @return The class with the given name, null if it is not part of the javadoc model.
+	 */
+	ClassDoc classNamed(final String qualifiedName) {
+		return documentation.classNamed(qualifiedName);
+	}
+
+	IDocExampleGenerator getRequestExampleGenerator() {
+		return requestExampleGenerator;
+	}
+
+	IDocExampleGenerator getResponseExampleGenerator() {
+		return responseExampleGenerator;
+	}
+
+	IRequestBodyParamFilter getRequestBodyParamFilter() {
+		return requestBodyParamFilter;
+	}
+
+	/**
+	 *
+	 * @return The enums found while generating the parameters, shared by the whole run.
+	 */
+	Set<ClassDoc> getIncludeEnums() {
+		return includeEnums;
+	}
+
+	TypeSchemaCache getSchemaCache() {
+		return schemaCache;
+	}
+
+	InheritedMethodsCache getInheritedMethodsCache() {
+		return inheritedMethodsCache;
+	}
+
+	FieldIndex getFieldIndex() {
+		return fieldIndex;
+	}
+
+	TypeVariableResolver getTypeResolver() {
+		return typeResolver;
+	}
+
+	GenerationMetrics getMetrics() {
+		return metrics;
+	}
+
+	void pushType(final String typeName) {
+		paramStack.push(typeName);
+		traversal.deepest = Math.max(traversal.deepest, paramStack.depth());
+	}
+
+	void popType() {
+		paramStack.pop();
+	}
+
+	/**
+	 * The types that are looked up are recorded as types the current traversal depends on.
+	 *
+	 * @param typeName .
+	 * @return true if the type is on the stack.
+	 */
+	boolean isOnStack(final String typeName) {
+		if (!Generator.isJavaType(typeName)) {
+			traversal.types.add(typeName);
+		}
+		return paramStack.contains(typeName);
+	}
+
+	int stackDepth() {
+		return paramStack.depth();
+	}
+
+	/**
+	 *
+	 * @return true if the stack holds more types than the maximal depth of the run allows.
+	 */
+	boolean isDepthExceeded() {
+		return paramStack.isDepthExceeded();
+	}
+
+	void clearStack() {
+		paramStack.clear();
+		traversal = new Traversal(0);
+	}
+
+	/**
+	 * Records that the traversal stopped at the given type because it is already on the stack.
+	 *
+	 * @param typeName .
+	 */
+	void recordCycleCut(final String typeName) {
+		int index = paramStack.indexOf(typeName);
+		if (index >= 0 && index < traversal.lowestCut) {
+			traversal.lowestCut = index;
+		}
+	}
+
+	/**
+	 * Records that the traversal stopped because the maximal depth was reached.
+	 * What was cut depends on the depth the traversal started at,
+	 * so none of the enclosing traversals is self-contained.
+	 */
+	void recordDepthCut() {
+		traversal.lowestCut = -1;
+	}
+
+	/**
+	 * Starts tracking what a nested traversal depends on.
+	 * The type the nested traversal starts from is expected to be on top of the stack.
+	 *
+	 * @return The state of the enclosing traversal, to be passed to {@link #endTraversal(Traversal, Object)}.
+	 */
+	Traversal beginTraversal() {
+		Traversal outer = traversal;
+		traversal = new Traversal(paramStack.depth());
+		return outer;
+	}
+
+	/**
+	 * Ends the tracking started by {@link #beginTraversal()},
+	 * what the nested traversal depends on is added to the enclosing traversal.
+	 *
+	 * @param outer The value returned by {@link #beginTraversal()}.
+	 * @param schema The result of the nested traversal.
+	 * @return The result as a cache entry, null if the nested traversal stopped at any type
+	 * that was on the stack before it started, meaning its result depends on the enclosing traversal.
+	 */
+	<T> TypeSchemaCache.Entry<T> endTraversal(final Traversal outer, final T schema) {
+		Traversal nested = traversal;
+		outer.add(nested);
+		traversal = outer;
+		if (nested.lowestCut < nested.startDepth - 1) {
+			return null;
+		}
+		return new TypeSchemaCache.Entry<>(schema, Collections.unmodifiableSet(nested.types),
+				nested.deepest - nested.startDepth);
+	}
+
+	/**
+	 * A cached result is reused only where the traversal it was computed by would give the same result:
+	 * none of the types it looked up may be on the stack below the type it starts from,
+	 * and the stack may not grow beyond the maximal depth. <br />
+	 * The type the entry was computed for is expected to be on top of the stack.
+	 *
+	 * @param entry .
+	 * @return true if the entry may be reused, it is then recorded as part of the current traversal.
+	 */
+	boolean reuse(final TypeSchemaCache.Entry<?> entry) {
+		int depth = paramStack.depth();
+		int maxDepth = paramStack.getMaxDepth();
+		if (maxDepth > 0 && depth + entry.getHeight() > maxDepth) {
+			return false;
+		}
+		for (String typeName : entry.getTypes()) {
+			int index = paramStack.indexOf(typeName);
+			if (index >= 0 && index < depth - 1) {
+				return false;
+			}
+		}
+		traversal.types.addAll(entry.getTypes());
+		traversal.deepest = Math.max(traversal.deepest, depth + entry.getHeight());
+		return true;
+	}
+
+	/**
+	 * What a traversal depends on, besides the type it starts from:
+	 * the types it looked up on the stack, the lowest stack index it stopped at,
+	 * and the deepest the stack grew while it ran.
+	 */
+	static final class Traversal {
+		private final int startDepth;
+		private final Set<String> types = new HashSet<>();
+		private int lowestCut = Integer.MAX_VALUE;
+		private int deepest;
+
+		private Traversal(final int startDepth) {
+			this.startDepth = startDepth;
+			this.deepest = startDepth;
+		}
+
+		private void add(final Traversal nested) {
+			types.addAll(nested.types);
+			lowestCut = Math.min(lowestCut, nested.lowestCut);
+			deepest = Math.max(deepest, nested.deepest);
+		}
+	}
+}
@@ -0,0 +1,348 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudifysource.restDoclet.exampleGenerators.JsonSerialization;
+
+
+/**
+ * Records the wall time, CPU time and allocated bytes of a doclet run,
+ * per phase, per controller class and per DTO type an example was generated for. <br />
+ * CPU time and allocations are measured per thread: a phase accounts for the thread that ran it
+ * and for the controller classes other threads extracted during it.
+ * The examples are generated when they are first rendered, mostly within the render phase,
+ * their wall time is summed over all the threads.
+ * The javadoc phase happens before the doclet starts, it is measured from the JVM start
+ * (or from {@link #markRunStart()}) on the thread that runs the doclet. <br />
+ * Values that the JVM cannot measure are reported as -1.
+ * A disabled instance ({@link #DISABLED}) records nothing.
+ *
+ * @since 0.5.3
+ */
+final class GenerationMetrics {
+	static final String PHASE_JAVADOC = "javadoc";
+	static final String PHASE_CONTROLLERS = "controllers";
+	static final String PHASE_EXAMPLES = "render.examples";
+	static final String PHASE_RENDER = "render";
+	static final String PHASE_UPLOAD = "upload";
+
+	static final GenerationMetrics DISABLED = new GenerationMetrics(false);
+
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+	private static final double NANOS_IN_MILLI = 1000000d;
+	private static final double BYTES_IN_MEGABYTE = 1024d * 1024d;
+
+	private static volatile Span runStart;
+
+	private final boolean enabled;
+	private final ThreadMXBean threads;
+	private final com.sun.management.ThreadMXBean allocations;
+	private final Map<String, Stat> phases = new LinkedHashMap<>();
+	private final Map<String, Stat> controllers = new HashMap<>();
+	private final Map<String, Stat> types = new HashMap<>();
+	private String currentPhase;
+	private long currentPhaseThread;
+
+	private GenerationMetrics(final boolean enabled) {
+		this.enabled = enabled;
+		if (!enabled) {
+			threads = null;
+			allocations = null;
+			return;
+		}
+		threads = ManagementFactory.getThreadMXBean();
+		if (threads.isCurrentThreadCpuTimeSupported() && !threads.isThreadCpuTimeEnabled()) {
+			threads.setThreadCpuTimeEnabled(true);
+		}
+		com.sun.management.ThreadMXBean sunThreads = null;
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			sunThreads = (com.sun.management.ThreadMXBean) threads;
+			if (sunThreads.isThreadAllocatedMemorySupported() && !sunThreads.isThreadAllocatedMemoryEnabled()) {
+				sunThreads.setThreadAllocatedMemoryEnabled(true);
+			}
+		}
+		allocations = sunThreads;
+	}
+
+	/**
+	 * Creates an enabled instance and records the javadoc phase,
+	 * must be called on the thread that runs the doclet.
+	 *
+	 * @return The metrics of the run.
+	 */
+	static GenerationMetrics create() {
+		GenerationMetrics metrics = new GenerationMetrics(true);
+		Span sinceStart = metrics.start();
+		Span mark = runStart;
+		if (mark != null && mark.thread == sinceStart.thread) {
+			add(metrics.phases, PHASE_JAVADOC, sinceStart.wall - mark.wall,
+					sinceStart.cpu < 0 || mark.cpu < 0 ? -1 : sinceStart.cpu - mark.cpu,
+					sinceStart.allocated < 0 || mark.allocated < 0 ? -1 : sinceStart.allocated - mark.allocated);
+			return metrics;
+		}
+		long wall = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+		add(metrics.phases, PHASE_JAVADOC, (long) (wall * NANOS_IN_MILLI), sinceStart.cpu, sinceStart.allocated);
+		return metrics;
+	}
+
+	/**
+	 * Marks the start of a run on the calling thread, for JVMs that run javadoc more than once
+	 * (see {@link RestDocletWatcher}). The javadoc phase of the run is measured from the mark
+	 * instead of the JVM start.
+	 */
+	static void markRunStart() {
+		runStart = new GenerationMetrics(true).start();
+	}
+
+	boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 *
+	 * @return The current state of the calling thread, null if the metrics are disabled.
+	 */
+	Span start() {
+		if (!enabled) {
+			return null;
+		}
+		return new Span(Thread.currentThread().getId(), System.nanoTime(), cpuTime(), allocatedBytes());
+	}
+
+	/**
+	 * Starts a phase on the calling thread.
+	 *
+	 * @param phase .
+	 * @return The span to pass to {@link #endPhase(String, Span)}.
+	 */
+	synchronized Span beginPhase(final String phase) {
+		Span span = start();
+		if (span != null) {
+			currentPhase = phase;
+			currentPhaseThread = span.thread;
+			if (!phases.containsKey(phase)) {
+				phases.put(phase, new Stat());
+			}
+		}
+		return span;
+	}
+
+	/**
+	 *
+	 * @param phase .
+	 * @param span The span returned by {@link #beginPhase(String)}.
+	 */
+	synchronized void endPhase(final String phase, final Span span) {
+		if (span == null) {
+			return;
+		}
+		record(phases, phase, span);
+		currentPhase = null;
+	}
+
+	/**
+	 * Records the extraction of a controller class.
+	 *
+	 * @param className .
+	 * @param span The span started before the extraction, on the same thread.
+	 */
+	synchronized void recordController(final String className, final Span span) {
+		if (span == null) {
+			return;
+		}
+		Stat stat = record(controllers, className, span);
+		if (currentPhase != null && span.thread != currentPhaseThread) {
+			phases.get(currentPhase).addOtherThread(stat.lastCpu, stat.lastAllocated);
+		}
+	}
+
+	/**
+	 * Records the generation of an example, for the type and for the examples phase.
+	 *
+	 * @param typeName .
+	 * @param span The span started before the generation, on the same thread.
+	 */
+	synchronized void recordExample(final String typeName, final Span span) {
+		if (span == null) {
+			return;
+		}
+		Stat stat = record(types, typeName, span);
+		add(phases, PHASE_EXAMPLES, stat.lastWall, stat.lastCpu, stat.lastAllocated);
+	}
+
+	/**
+	 *
+	 * @param topN The number of controllers and types to list.
+	 * @return A table of the phases and of the slowest controllers and types.
+	 */
+	synchronized String summary(final int topN) {
+		StringBuilder table = new StringBuilder("Doclet run metrics").append(LINE_SEPARATOR);
+		appendTable(table, "Phase", new ArrayList<>(phases.entrySet()), phases.size());
+		appendTable(table, "Controller class", sortedByWall(controllers), topN);
+		appendTable(table, "DTO type", sortedByWall(types), topN);
+		return table.toString();
+	}
+
+	/**
+	 * Writes all the recorded values as JSON.
+	 *
+	 * @param file .
+	 * @throws IOException .
+	 */
+	synchronized void write(final File file) throws IOException {
+		Map<String, Object> content = new LinkedHashMap<>();
+		content.put("phases", toJson(new ArrayList<>(phases.entrySet())));
+		content.put("controllers", toJson(sortedByWall(controllers)));
+		content.put("types", toJson(sortedByWall(types)));
+		File parentFile = file.getParentFile();
+		if (parentFile != null) {
+			parentFile.mkdirs();
+		}
+		JsonSerialization.write(file, content);
+	}
+
+	private long cpuTime() {
+		if (!threads.isCurrentThreadCpuTimeSupported()) {
+			return -1;
+		}
+		return threads.getCurrentThreadCpuTime();
+	}
+
+	private long allocatedBytes() {
+		if (allocations == null || !allocations.isThreadAllocatedMemorySupported()) {
+			return -1;
+		}
+		return allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private Stat record(final Map<String, Stat> stats, final String name, final Span span) {
+		long cpu = cpuTime();
+		long allocated = allocatedBytes();
+		return add(stats, name, System.nanoTime() - span.wall,
+				cpu < 0 || span.cpu < 0 ? -1 : cpu - span.cpu,
+				allocated < 0 || span.allocated < 0 ? -1 : allocated - span.allocated);
+	}
+
+	private static Stat add(final Map<String, Stat> stats, final String name,
+							final long wall, final long cpu, final long allocated) {
+		Stat stat = stats.get(name);
+		if (stat == null) {
+			stat = new Stat();
+			stats.put(name, stat);
+		}
+		stat.add(wall, cpu, allocated);
+		return stat;
+	}
+
+	private static List<Map.Entry<String, Stat>> sortedByWall(final Map<String, Stat> stats) {
+		List<Map.Entry<String, Stat>> sorted = new ArrayList<>(stats.entrySet());
+		Collections.sort(sorted, new Comparator<Map.Entry<String, Stat>>() {
+			@Override
+			public int compare(final Map.Entry<String, Stat> first, final Map.Entry<String, Stat> second) {
+				return Long.compare(second.getValue().wall, first.getValue().wall);
+			}
+		});
+		return sorted;
+	}
+
+	private static void appendTable(final StringBuilder table, final String title,
+									final List<Map.Entry<String, Stat>> rows, final int limit) {
+		if (rows.isEmpty()) {
+			return;
+		}
+		table.append(LINE_SEPARATOR).append(String.format("%-60s %8s %12s %12s %14s", title, "count", "wall (ms)", "cpu (ms)",
+				"alloc (MB)")).append(LINE_SEPARATOR);
+		for (Map.Entry<String, Stat> row : rows.subList(0, Math.min(limit, rows.size()))) {
+			Stat stat = row.getValue();
+			table.append(String.format("%-60s %8d %12.1f %12.1f %14.1f", row.getKey(), stat.count,
+					stat.wall / NANOS_IN_MILLI,
+					stat.cpu < 0 ? -1 : stat.cpu / NANOS_IN_MILLI,
+					stat.allocated < 0 ? -1 : stat.allocated / BYTES_IN_MEGABYTE)).append(LINE_SEPARATOR);
+		}
+	}
+
+	private static List<Map<String, Object>> toJson(final List<Map.Entry<String, Stat>> rows) {
+		List<Map<String, Object>> json = new ArrayList<>(rows.size());
+		for (Map.Entry<String, Stat> row : rows) {
+			Stat stat = row.getValue();
+			Map<String, Object> entry = new LinkedHashMap<>();
+			entry.put("name", row.getKey());
+			entry.put("count", stat.count);
+			entry.put("wallNanos", stat.wall);
+			entry.put("cpuNanos", stat.cpu);
+			entry.put("allocatedBytes", stat.allocated);
+			json.add(entry);
+		}
+		return json;
+	}
+
+	/**
+	 * The state of a thread when a measurement started.
+	 */
+	static final class Span {
+		private final long thread;
+		private final long wall;
+		private final long cpu;
+		private final long allocated;
+
+		private Span(final long thread, final long wall, final long cpu, final long allocated) {
+			this.thread = thread;
+			this.wall = wall;
+			this.cpu = cpu;
+			this.allocated = allocated;
+		}
+	}
+
+	/**
+	 * The accumulated values of a phase, controller class or type.
+	 */
+	private static final class Stat {
+		private int count;
+		private long wall;
+		private long cpu;
+		private long allocated;
+		private long lastWall;
+		private long lastCpu;
+		private long lastAllocated;
+
+		private void add(final long wallDelta, final long cpuDelta, final long allocatedDelta) {
+			count++;
+			wall += wallDelta;
+			cpu = cpu < 0 || cpuDelta < 0 ? -1 : cpu + cpuDelta;
+			allocated = allocated < 0 || allocatedDelta < 0 ? -1 : allocated + allocatedDelta;
+			lastWall = wallDelta;
+			lastCpu = cpuDelta;
+			lastAllocated = allocatedDelta;
+		}
+
+		private void addOtherThread(final long cpuDelta, final long allocatedDelta) {
+			cpu = cpu < 0 || cpuDelta < 0 ? -1 : cpu + cpuDelta;
+			allocated = allocated < 0 || allocatedDelta < 0 ? -1 : allocated + allocatedDelta;
+		}
+	}
+}
@@ -16,33 +16,29 @@
 package org.cloudifysource.restDoclet.generation;
 
 import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import com.googlecode.htmlcompressor.compressor.HtmlCompressor;
 import com.sun.javadoc.*;
-import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang.ArrayUtils;
-import org.apache.http.HttpResponse;
-import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.velocity.Template;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.Velocity;
-import org.apache.velocity.runtime.RuntimeConstants;
-import org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader;
 import org.cloudifysource.restDoclet.constants.RestDocConstants;
 import org.cloudifysource.restDoclet.docElements.*;
 import org.cloudifysource.restDoclet.exampleGenerators.DefaultRequestBodyParameterFilter;
 import org.cloudifysource.restDoclet.exampleGenerators.DocDefaultExampleGenerator;
 import org.cloudifysource.restDoclet.exampleGenerators.IDocExampleGenerator;
 import org.cloudifysource.restDoclet.exampleGenerators.IRequestBodyParamFilter;
-import org.codehaus.jackson.map.ObjectMapper;
+import org.cloudifysource.restDoclet.exampleGenerators.JsonSerialization;
 
 /**
  * Generates REST API documentation in an HTML form. <br />
@@ -69,30 +65,41 @@ public class Generator {
 	private static final String REQUEST_HAS_NO_BODY_MSG = "request has no body";
 	private static final String RESPONSE_HAS_NO_BODY_MSG = "response has no body";
 	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+	// The encoding declared by the template's content-type
+	private static final Charset HTML_ENCODING = StandardCharsets.UTF_8;
 
-	private static RootDoc documentation;
+	private final RootDoc documentation;
 	private String velocityTemplatePath;
 	private String velocityTemplateFileName;
 	private boolean isUserDefineTemplatePath = false;
 	private String docPath;
 	private String version;
 	private String docCssPath;
-	private static String requestExampleGeneratorName;
-	private static String responseExampleGeneratorName;
-	private static IDocExampleGenerator requestExampleGenerator;
-	private static IDocExampleGenerator responseExampleGenerator;
-	private static String requestBodyParamFilterName;
-	private static IRequestBodyParamFilter requestBodyParamFilter;
-	private static Set<ClassDoc> includeEnums = new HashSet<>();
-	private static List<String> paramStack = new ArrayList<>();
-
-	// Set to the Confluence base URL
-	private static final String CONFLUENCE_BASE_URL = "";
-	private static final String CONFLUENCE_REQUEST_URL = CONFLUENCE_BASE_URL + "/rest/api/content";
-	// Set to a Confluence space to upload the content to
-	private static final String CONFLUENCE_SPACE = "";
-	// Set to "username:password" string
-	private static final String CONFLUENCE_CREDENTIALS = "";
+	private int parallelism = RestDocConstants.PARALLELISM;
+	private String cachePath;
+	private boolean isMultiPage = false;
+	private String metricsPath;
+	private int metricsTopN = RestDocConstants.METRICS_TOP_N;
+	private int maxDepth = RestDocConstants.MAX_DEPTH;
+	private String modelExportPath;
+	private boolean isNdjsonModel = false;
+	private String openApiPath;
+	private boolean isYamlOpenApi = false;
+	private final GenerationMetrics metrics;
+	private String requestExampleGeneratorName;
+	private String responseExampleGeneratorName;
+	private IDocExampleGenerator requestExampleGenerator;
+	private IDocExampleGenerator responseExampleGenerator;
+	private String requestBodyParamFilterName;
+	private IRequestBodyParamFilter requestBodyParamFilter;
+	private String confluenceUrl;
+	private String confluenceSpace;
+	private String confluenceCredentials;
+	private String confluenceTitle;
+	private int confluenceParallelism = RestDocConstants.CONFLUENCE_PARALLELISM;
+	private int confluenceRetries = RestDocConstants.CONFLUENCE_RETRIES;
+	private String confluenceManifestPath;
+	private int confluenceTimeout = RestDocConstants.CONFLUENCE_TIMEOUT;
 
 	/**
 	 *
@@ -101,6 +108,7 @@ public class Generator {
 	public Generator(final RootDoc rootDoc) {
 		documentation = rootDoc;
 		setFlags(documentation.options());
+		metrics = StringUtils.isBlank(metricsPath) ? GenerationMetrics.DISABLED : GenerationMetrics.create();
 	}
 
 	/**
@@ -169,6 +177,60 @@ public class Generator {
 			} else if (RestDocConstants.REQUEST_BODY_PARAM_FILTER_CLASS_FLAG.equals(flagName)) {
 				requestBodyParamFilterName = flagValue;
 				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.PARALLELISM_FLAG.equals(flagName)) {
+				parallelism = parseIntFlag(flagName, flagValue, RestDocConstants.PARALLELISM, 1);
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + parallelism);
+			} else if (RestDocConstants.CACHE_PATH_FLAG.equals(flagName)) {
+				cachePath = flagValue;
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.OUTPUT_MODE_FLAG.equals(flagName)) {
+				isMultiPage = parseMultiPage(flagValue);
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.METRICS_PATH_FLAG.equals(flagName)) {
+				metricsPath = flagValue;
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.METRICS_TOP_N_FLAG.equals(flagName)) {
+				metricsTopN = parseIntFlag(flagName, flagValue, RestDocConstants.METRICS_TOP_N, 1);
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + metricsTopN);
+			} else if (RestDocConstants.MAX_DEPTH_FLAG.equals(flagName)) {
+				maxDepth = parseIntFlag(flagName, flagValue, RestDocConstants.MAX_DEPTH, 0);
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + maxDepth);
+			} else if (RestDocConstants.MODEL_EXPORT_PATH_FLAG.equals(flagName)) {
+				modelExportPath = flagValue;
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.MODEL_FORMAT_FLAG.equals(flagName)) {
+				isNdjsonModel = parseNdjsonModel(flagValue);
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.OPEN_API_PATH_FLAG.equals(flagName)) {
+				openApiPath = flagValue;
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.OPEN_API_FORMAT_FLAG.equals(flagName)) {
+				isYamlOpenApi = parseYamlOpenApi(flagValue);
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.CONFLUENCE_URL_FLAG.equals(flagName)) {
+				confluenceUrl = flagValue;
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.CONFLUENCE_SPACE_FLAG.equals(flagName)) {
+				confluenceSpace = flagValue;
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.CONFLUENCE_CREDENTIALS_FLAG.equals(flagName)) {
+				confluenceCredentials = flagValue;
+				logger.log(Level.INFO, "Updating flag " + flagName);
+			} else if (RestDocConstants.CONFLUENCE_TITLE_FLAG.equals(flagName)) {
+				confluenceTitle = flagValue;
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.CONFLUENCE_PARALLELISM_FLAG.equals(flagName)) {
+				confluenceParallelism = parseIntFlag(flagName, flagValue, RestDocConstants.CONFLUENCE_PARALLELISM, 1);
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + confluenceParallelism);
+			} else if (RestDocConstants.CONFLUENCE_RETRIES_FLAG.equals(flagName)) {
+				confluenceRetries = parseIntFlag(flagName, flagValue, RestDocConstants.CONFLUENCE_RETRIES, 0);
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + confluenceRetries);
+			} else if (RestDocConstants.CONFLUENCE_MANIFEST_FLAG.equals(flagName)) {
+				confluenceManifestPath = flagValue;
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + flagValue);
+			} else if (RestDocConstants.CONFLUENCE_TIMEOUT_FLAG.equals(flagName)) {
+				confluenceTimeout = parseIntFlag(flagName, flagValue, RestDocConstants.CONFLUENCE_TIMEOUT, 1);
+				logger.log(Level.INFO, "Updating flag " + flagName + " value = " + confluenceTimeout);
 			}
 		}
 
@@ -195,6 +257,14 @@ public class Generator {
 			docCssPath = RestDocConstants.DOC_CSS_PATH;
 		}
 
+		if (StringUtils.isBlank(confluenceCredentials)) {
+			confluenceCredentials = System.getenv(RestDocConstants.CONFLUENCE_CREDENTIALS_ENV);
+		}
+
+		if (StringUtils.isBlank(confluenceTitle)) {
+			confluenceTitle = getDefaultConfluenceTitle();
+		}
+
 		initRequestExampleGenerator(requestExampleGeneratorName);
 		logger.log(Level.INFO, "Updating request example generator class to "
 				+ requestExampleGenerator.getClass().getName());
@@ -208,6 +278,72 @@ public class Generator {
 	}
 
 
+	// The value of a numeric flag, or its default value if the given value is not a number of at least the minimum
+	private int parseIntFlag(final String flagName, final String flagValue, final int defaultValue,
+			final int minimum) {
+		try {
+			int value = Integer.parseInt(flagValue.trim());
+			if (value >= minimum) {
+				return value;
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		logger.log(Level.WARNING, "Illegal value " + flagValue + " for flag " + flagName
+				+ ", expected a number of at least " + minimum + ". Using the default value " + defaultValue + ".");
+		return defaultValue;
+	}
+
+	// The name of the module the doclet runs in, when it runs within the module's target directory
+	private String getDefaultConfluenceTitle() {
+		String dir = System.getProperty("user.dir");
+		int targetIndex = dir.indexOf(File.separator + "target");
+		if (targetIndex >= 0) {
+			dir = dir.substring(0, targetIndex);
+		}
+		String moduleName = dir.substring(dir.lastIndexOf(File.separator) + 1);
+		return moduleName.isEmpty() ? "REST API " + version : moduleName;
+	}
+
+	private boolean parseMultiPage(final String flagValue) {
+		if (RestDocConstants.OUTPUT_MODE_MULTI_PAGE.equals(flagValue)) {
+			return true;
+		}
+		if (!RestDocConstants.OUTPUT_MODE_SINGLE_PAGE.equals(flagValue)) {
+			logger.log(Level.WARNING, "Illegal value " + flagValue + " for flag "
+					+ RestDocConstants.OUTPUT_MODE_FLAG + ", expected "
+					+ RestDocConstants.OUTPUT_MODE_SINGLE_PAGE + " or " + RestDocConstants.OUTPUT_MODE_MULTI_PAGE
+					+ ". Writing a single page.");
+		}
+		return false;
+	}
+
+	private boolean parseNdjsonModel(final String flagValue) {
+		if (RestDocConstants.MODEL_FORMAT_NDJSON.equals(flagValue)) {
+			return true;
+		}
+		if (!RestDocConstants.MODEL_FORMAT_JSON.equals(flagValue)) {
+			logger.log(Level.WARNING, "Illegal value " + flagValue + " for flag "
+					+ RestDocConstants.MODEL_FORMAT_FLAG + ", expected "
+					+ RestDocConstants.MODEL_FORMAT_JSON + " or " + RestDocConstants.MODEL_FORMAT_NDJSON
+					+ ". Exporting a single JSON document.");
+		}
+		return false;
+	}
+
+	private boolean parseYamlOpenApi(final String flagValue) {
+		if (RestDocConstants.OPEN_API_FORMAT_YAML.equals(flagValue)) {
+			return true;
+		}
+		if (!RestDocConstants.OPEN_API_FORMAT_JSON.equals(flagValue)) {
+			logger.log(Level.WARNING, "Illegal value " + flagValue + " for flag "
+					+ RestDocConstants.OPEN_API_FORMAT_FLAG + ", expected "
+					+ RestDocConstants.OPEN_API_FORMAT_JSON + " or " + RestDocConstants.OPEN_API_FORMAT_YAML
+					+ ". Writing the OpenAPI document as JSON.");
+		}
+		return false;
+	}
+
 	private void initRequestBodyParamFilter() {
 		if (StringUtils.isBlank(requestBodyParamFilterName)) {
 			requestBodyParamFilter = new DefaultRequestBodyParameterFilter();
@@ -302,104 +438,503 @@ public class Generator {
 	public void run() throws Exception {
 
 		// GENERATE DOCUMENTATIONS IN DOC CLASSES
-		ClassDoc[] classes = documentation.classes();
-		List<DocController> controllers = generateControllers(classes);
+		// THE JAVADOC MODEL IS NOT THREAD-SAFE, IT IS GUARDED BY A LOCK WHEN MORE THAN ONE THREAD READS IT
+		boolean isUploading = isConfluenceConfigured();
+		RootDoc model = parallelism > 1 || (isUploading && !isMultiPage)
+				? SynchronizedRootDoc.wrap(documentation) : documentation;
+		GenerationContext context = new GenerationContext(model,
+				requestExampleGenerator, responseExampleGenerator, requestBodyParamFilter, metrics, maxDepth);
+		ClassDoc[] classes = model.classes();
+		File file = new File(docPath);
+		List<ClassDoc> controllerClasses = getControllerClasses(classes);
+
+		FingerprintCache fingerprints = null;
+		if (!StringUtils.isBlank(cachePath)) {
+			fingerprints = FingerprintCache.load(new File(cachePath), getSettingsFingerprint());
+			if (!isMultiPage && file.isFile() && areExportsWritten()
+					&& fingerprints.isUnchanged(context, controllerClasses)) {
+				logger.log(Level.INFO, "None of the " + controllerClasses.size()
+						+ " controller classes changed since the previous run, keeping " + file.getAbsolutePath());
+				return;
+			}
+			if (!isMultiPage) {
+				logger.log(Level.INFO, "Generating the single page for all the " + controllerClasses.size()
+						+ " controller classes (the multi-page output regenerates the changed ones only)");
+			}
+		}
+
+		if (isMultiPage) {
+			// EACH CONTROLLER CLASS IS GENERATED AND WRITTEN TO ITS OWN PAGES,
+			// THEN THE INDEX PAGE IS WRITTEN TO THE DESTINATION FILE
+			writeMultiPageDocumentation(context, controllerClasses, file, fingerprints);
+			if (fingerprints != null) {
+				fingerprints.save();
+			}
+			if (!StringUtils.isBlank(modelExportPath) || !StringUtils.isBlank(openApiPath)) {
+				logger.log(Level.INFO, "Exporting the model and the OpenAPI document is only supported for the "
+						+ RestDocConstants.OUTPUT_MODE_SINGLE_PAGE + " output, skipping the export.");
+			}
+			if (isUploading) {
+				logger.log(Level.INFO, "Uploading to Confluence is only supported for the "
+						+ RestDocConstants.OUTPUT_MODE_SINGLE_PAGE + " output, skipping the upload.");
+			}
+			return;
+		}
+
+		GenerationMetrics.Span controllersPhase = metrics.beginPhase(GenerationMetrics.PHASE_CONTROLLERS);
+		Map<ClassDoc, List<DocController>> controllersByClass = generateControllers(context, classes, parallelism);
+		metrics.endPhase(GenerationMetrics.PHASE_CONTROLLERS, controllersPhase);
+		List<DocController> controllers = new LinkedList<DocController>();
+		for (List<DocController> classControllers : controllersByClass.values()) {
+			addControllers(controllers, classControllers);
+		}
 		logger.log(Level.INFO, "Generated " + controllers.size()
 				+ " controlles, creating HTML documentation using velocity template.");
 
+		// THE UPLOAD RUNS IN THE BACKGROUND WHILE THE FILES ARE WRITTEN,
+		// ONCE THE SIZE OF THE DOCUMENTATION TELLS WHETHER IT IS UPLOADED AS A SINGLE PAGE
+		PublishingPipeline publishing = null;
+		DocumentSize documentSize = null;
+		if (isUploading) {
+			final List<DocController> uploadedControllers = controllers;
+			final Set<ClassDoc> uploadedEnums = context.getIncludeEnums();
+			final File uploadedFile = file;
+			final DocumentSize uploadedSize = new DocumentSize(RestDocConstants.CONFLUENCE_MAX_PAGE_SIZE);
+			documentSize = uploadedSize;
+			publishing = new PublishingPipeline();
+			publishing.submit("Confluence upload", new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					uploadToConfluence(uploadedControllers, uploadedEnums, uploadedFile, uploadedSize);
+					return null;
+				}
+			});
+		}
+
 		// TRANSLATE DOC CLASSES INTO HTML DOCUMENTATION USING VELOCITY TEMPLATE
-		String generatedHtml = generateHtmlDocumentation(controllers, includeEnums);
+		// STRAIGHT INTO THE DESTINATION FILE
+		GenerationMetrics.Span renderPhase = metrics.beginPhase(GenerationMetrics.PHASE_RENDER);
+		try {
+			writeHtmlDocumentation(controllers, context.getIncludeEnums(), file, documentSize);
+			if (!StringUtils.isBlank(modelExportPath)) {
+				File modelFile = new File(modelExportPath);
+				logger.log(Level.INFO, "Export the model to " + modelFile.getAbsolutePath());
+				ModelExporter.write(modelFile, isNdjsonModel, version, controllers, context.getIncludeEnums());
+			}
+			if (!StringUtils.isBlank(openApiPath)) {
+				File openApiFile = new File(openApiPath);
+				logger.log(Level.INFO, "Write the OpenAPI document to " + openApiFile.getAbsolutePath());
+				new OpenApiWriter(context).write(openApiFile, isYamlOpenApi, version, controllers);
+			}
+		} catch (Exception e) {
+			if (publishing != null) {
+				documentSize.failed();
+				publishing.cancel();
+			}
+			throw e;
+		}
+		metrics.endPhase(GenerationMetrics.PHASE_RENDER, renderPhase);
+
+		// ONLY THE TIME THE UPLOAD TAKES BEYOND THE RENDER PHASE IS MEASURED
+		if (publishing != null) {
+			GenerationMetrics.Span uploadPhase = metrics.beginPhase(GenerationMetrics.PHASE_UPLOAD);
+			try {
+				publishing.awaitCompletion(TimeUnit.SECONDS.toMillis(confluenceTimeout));
+			} finally {
+				metrics.endPhase(GenerationMetrics.PHASE_UPLOAD, uploadPhase);
+			}
+		}
 
-		uploadToConfluence(generatedHtml);
+		// NOT SAVED WHEN THE UPLOAD FAILED, SO THE NEXT RUN UPLOADS AGAIN
+		if (fingerprints != null) {
+			for (ClassDoc controllerClass : controllerClasses) {
+				fingerprints.update(context, controllerClass, FingerprintCache.collectDependencies(context,
+						controllerClass, controllersByClass.get(controllerClass)), null);
+			}
+			fingerprints.save();
+		}
+	}
 
-		// WRITE GENERATED HTML TO A FILE
-		FileWriter velocityfileWriter = null;
+	/**
+	 * Logs a summary of the run's metrics and writes them to the metrics file,
+	 * if the metrics are enabled (see {@link RestDocConstants#METRICS_PATH_FLAG}).
+	 */
+	public void reportMetrics() {
+		if (!metrics.isEnabled()) {
+			return;
+		}
+		logger.log(Level.INFO, metrics.summary(metricsTopN));
+		File file = new File(metricsPath);
 		try {
-			File file = new File(docPath);
-			File parentFile = file.getParentFile();
-			if (parentFile != null) {
-				if (parentFile.mkdirs()) {
-					logger.log(
-							Level.FINEST,
-							"The directory "
-									+ parentFile.getAbsolutePath()
-									+ " was created, along with all necessary parent directories.");
+			metrics.write(file);
+			logger.log(Level.INFO, "Wrote the run metrics to " + file.getAbsolutePath());
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Could not write the metrics file " + file.getAbsolutePath()
+					+ ". Exception was: " + e);
+		}
+	}
+
+	/**
+	 *
+	 * @return true if the exported model and the OpenAPI document exist, or are not written.
+	 */
+	private boolean areExportsWritten() {
+		return (StringUtils.isBlank(modelExportPath) || new File(modelExportPath).isFile())
+				&& (StringUtils.isBlank(openApiPath) || new File(openApiPath).isFile());
+	}
+
+	private static List<ClassDoc> getControllerClasses(final ClassDoc[] classes) {
+		List<ClassDoc> controllerClasses = new ArrayList<ClassDoc>();
+		for (ClassDoc classDoc : classes) {
+			if (!Utils.filterOutControllerClass(classDoc, generateAnnotations(classDoc.annotations()))) {
+				controllerClasses.add(classDoc);
+			}
+		}
+		return controllerClasses;
+	}
+
+	/**
+	 * The fingerprints of the controllers are only valid for the options and the template they were generated with.
+	 *
+	 * @return The fingerprint of the run settings.
+	 */
+	private String getSettingsFingerprint() {
+		StringBuilder settings = new StringBuilder();
+		settings.append(Generator.class.getPackage().getImplementationVersion()).append('\n');
+		for (String[] option : documentation.options()) {
+			settings.append(StringUtils.join(option, " ")).append('\n');
+		}
+		settings.append(FingerprintCache.hashFile(new File(velocityTemplatePath, velocityTemplateFileName)));
+		return DigestUtils.sha1Hex(settings.toString());
+	}
+
+	/**
+	 * Writes the REST API documentation as an index page and a page per controller.
+	 * The controller classes are generated and written concurrently (see {@link RestDocConstants#PARALLELISM_FLAG}),
+	 * each class is released as soon as its pages are written.
+	 * The javadoc model of the context is then guarded by a lock (see {@link SynchronizedRootDoc}).
+	 * The pages are rendered within the controllers phase of the metrics, the index within the render phase.
+	 * The pages of classes that did not change since the previous run are kept as they are.
+	 * Each class is generated with caches of its own (see {@link GenerationContext#forkWithOwnCaches()}),
+	 * so the schemas and examples of a class are released along with its pages.
+	 * The pages written by the previous run that are no longer part of the documentation are deleted.
+	 *
+	 * @param context .
+	 * @param controllerClasses .
+	 * @param indexFile The destination of the index page, the controller pages are written next to it.
+	 * @param fingerprints The fingerprints of the previous run, null if there are none.
+	 * @throws Exception .
+	 */
+	private void writeMultiPageDocumentation(final GenerationContext context, final List<ClassDoc> controllerClasses,
+			final File indexFile, final FingerprintCache fingerprints) throws Exception {
+		final File pagesDir = indexFile.getAbsoluteFile().getParentFile();
+		if (pagesDir.mkdirs()) {
+			logger.log(Level.FINEST, "The directory " + pagesDir.getAbsolutePath()
+					+ " was created, along with all necessary parent directories.");
+		}
+		logTemplate();
+
+		int keptClasses = 0;
+		List<Callable<List<DocControllerPage>>> tasks = new ArrayList<>(controllerClasses.size());
+		for (final ClassDoc controllerClass : controllerClasses) {
+			final List<DocControllerPage> previousPages =
+					fingerprints == null ? null : fingerprints.getPages(context, controllerClass);
+			if (previousPages != null && pagesExist(pagesDir, previousPages)) {
+				fingerprints.keep(controllerClass);
+				keptClasses++;
+				tasks.add(new Callable<List<DocControllerPage>>() {
+					@Override
+					public List<DocControllerPage> call() {
+						return previousPages;
+					}
+				});
+				continue;
+			}
+			final GenerationContext classContext = context.forkWithOwnCaches();
+			tasks.add(new Callable<List<DocControllerPage>>() {
+				@Override
+				public List<DocControllerPage> call() throws Exception {
+					GenerationMetrics.Span span = classContext.getMetrics().start();
+					try {
+						return writeControllerPages(classContext, controllerClass, pagesDir, fingerprints);
+					} finally {
+						classContext.getMetrics().recordController(controllerClass.qualifiedTypeName(), span);
+					}
+				}
+			});
+		}
+		logger.log(Level.INFO, "Writing the pages of " + (controllerClasses.size() - keptClasses)
+				+ " controller classes using " + parallelism + " threads, " + keptClasses
+				+ " classes did not change since the previous run.");
+
+		GenerationMetrics.Span controllersPhase = metrics.beginPhase(GenerationMetrics.PHASE_CONTROLLERS);
+		List<DocControllerPage> pages = new ArrayList<>();
+		for (List<DocControllerPage> classPages : invokeAll(tasks, parallelism)) {
+			pages.addAll(classPages);
+		}
+		metrics.endPhase(GenerationMetrics.PHASE_CONTROLLERS, controllersPhase);
+		deleteStalePages(indexFile, pages);
+
+		GenerationMetrics.Span renderPhase = metrics.beginPhase(GenerationMetrics.PHASE_RENDER);
+		VelocityContext ctx = new VelocityContext();
+		ctx.put("pages", pages);
+		ctx.put("version", version);
+		ctx.put("docCssPath", docCssPath);
+		logger.log(Level.INFO, "Write index of " + pages.size() + " pages to " + indexFile.getAbsolutePath());
+		mergeTemplate(RestDocConstants.VELOCITY_INDEX_TEMPLATE_FILE_NAME, ctx, indexFile);
+		metrics.endPhase(GenerationMetrics.PHASE_RENDER, renderPhase);
+	}
+
+	/**
+	 * Deletes the pages listed by the previous run that are not part of the given pages,
+	 * then lists the given pages for the next run
+	 * (see {@link RestDocConstants#PAGE_LIST_FILE_SUFFIX}).
+	 *
+	 * @param indexFile The destination of the index page, the controller pages are next to it.
+	 * @param pages The pages of this run.
+	 * @throws IOException .
+	 */
+	private static void deleteStalePages(final File indexFile, final List<DocControllerPage> pages)
+			throws IOException {
+		File pagesDir = indexFile.getAbsoluteFile().getParentFile();
+		File pageList = new File(pagesDir, indexFile.getName() + RestDocConstants.PAGE_LIST_FILE_SUFFIX);
+		Set<String> fileNames = new LinkedHashSet<>();
+		for (DocControllerPage page : pages) {
+			fileNames.add(page.getFileName());
+		}
+		if (pageList.isFile()) {
+			for (String previousFileName : Files.readAllLines(pageList.toPath(), StandardCharsets.UTF_8)) {
+				if (previousFileName.isEmpty() || fileNames.contains(previousFileName)
+						|| previousFileName.equals(indexFile.getName())) {
+					continue;
+				}
+				File stalePage = new File(pagesDir, previousFileName);
+				// ONLY FILES DIRECTLY UNDER THE PAGES DIRECTORY ARE DELETED
+				if (pagesDir.equals(stalePage.getParentFile()) && Files.deleteIfExists(stalePage.toPath())) {
+					logger.log(Level.INFO, "Deleted the page " + stalePage.getAbsolutePath()
+							+ ", its controller is no longer documented.");
 				}
 			}
-			logger.log(Level.INFO,
-					"Write generated velocity to " + file.getAbsolutePath());
-			velocityfileWriter = new FileWriter(file);
-			velocityfileWriter.write(generatedHtml);
-		} finally {
-			if (velocityfileWriter != null) {
-				velocityfileWriter.close();
+		}
+		Files.write(pageList.toPath(), fileNames, StandardCharsets.UTF_8);
+	}
+
+	private static boolean pagesExist(final File pagesDir, final List<DocControllerPage> pages) {
+		for (DocControllerPage page : pages) {
+			if (!new File(pagesDir, page.getFileName()).isFile()) {
+				return false;
 			}
 		}
+		return true;
 	}
 
 	/**
-	 * Upload content to Confluence
+	 * Generates the controllers of a class and writes a page for each of them.
+	 * A page documents the enums its controller refers to.
+	 *
+	 * @return The written pages.
 	 */
-	public void uploadToConfluence(String content) {
-		HttpClient client = HttpClientBuilder.create().build();
-		HttpPost post;
-
-		HtmlCompressor compressor = new HtmlCompressor();
-		StringEntity input;
-		HttpResponse response;
-		String output = content;
-		String key;
-
-		if (CONFLUENCE_SPACE.isEmpty() || CONFLUENCE_BASE_URL.isEmpty() || CONFLUENCE_CREDENTIALS.isEmpty()) {
-			System.out.println("Warning: Cannot upload content to Confluene.\n" +
-					"Variables not set in the doclet: CONFLUENCE_SPACE, CONFLUENCE_BASE_URL and/or CONFLUENCE_CREDENTIALS.");
-			return;
+	private List<DocControllerPage> writeControllerPages(final GenerationContext context, final ClassDoc classDoc,
+			final File pagesDir, final FingerprintCache fingerprints) throws Exception {
+		List<DocController> controllers = generateControllers(context, classDoc);
+		Set<String> dependencies = FingerprintCache.collectDependencies(context, classDoc, controllers);
+		List<DocControllerPage> pages = new ArrayList<>();
+		if (controllers != null) {
+			Set<ClassDoc> enums = new LinkedHashSet<>();
+			for (String dependency : dependencies) {
+				ClassDoc dependencyDoc = context.classNamed(dependency);
+				if (dependencyDoc != null && dependencyDoc.isEnum()) {
+					enums.add(dependencyDoc);
+				}
+			}
+			Set<String> fileNames = new HashSet<>();
+			for (DocController controller : controllers) {
+				String fileName = getPageFileName(classDoc, controller, fileNames);
+				mergeTemplate(velocityTemplateFileName,
+						createVelocityContext(Collections.singletonList(controller), enums),
+						new File(pagesDir, fileName));
+				pages.add(new DocControllerPage(controller.getName(), controller.getUri(),
+						controller.getDescription(), fileName));
+			}
+		}
+		if (fingerprints != null) {
+			fingerprints.update(context, classDoc, dependencies, pages);
+		}
+		return pages;
+	}
+
+	/**
+	 * The file name is derived from the class name and the controller's URI,
+	 * so the page of a controller keeps its name from run to run.
+	 */
+	private static String getPageFileName(final ClassDoc classDoc, final DocController controller,
+										  final Set<String> usedFileNames) {
+		String baseName = (classDoc.qualifiedTypeName() + controller.getUri()).replaceAll("[^A-Za-z0-9_.-]", "_");
+		String fileName = baseName + ".html";
+		for (int i = 1; !usedFileNames.add(fileName); i++) {
+			fileName = baseName + "_" + i + ".html";
 		}
+		return fileName;
+	}
+
+	/**
+	 * Writes the REST API documentation in HTML form to the given file,
+	 * the template is merged directly into the file without holding the whole document in memory.
+	 *
+	 * @param controllers .
+	 * @param dataStructs The enums to document.
+	 * @param file The destination file.
+	 * @throws Exception .
+	 */
+	public void writeHtmlDocumentation(final List<DocController> controllers, final Set<ClassDoc> dataStructs,
+									   final File file) throws Exception {
+		writeHtmlDocumentation(controllers, dataStructs, file, null);
+	}
 
-		// Prepare HTML for upload
-		//  * Minimize HTML
-		//  * Escape double quotes and line breaks
-		//  * Only sent contents of the body
-		output = compressor.compress(content);
-		output = output.replace("\"", "\\\"");
-		output = output.replace("\n", "\\n");
-		output = output.substring(output.indexOf("<body>") + 6, output.indexOf("</body>"));
-
-		// Get module name to use a title of page
-		key = System.getProperty("user.dir");
-		key = key.substring(0, key.indexOf("/target"));
-		key = key.substring(key.lastIndexOf("/") + 1);
-
-		// Upload to Confluence
-		input = new StringEntity("{\"type\":\"page\",\"title\":\""+ key + "\","
-				+ "\"space\":{\"key\":\"" + CONFLUENCE_SPACE + "\"},"
-				+ "\"body\":{\"storage\":{\"value\":\"" + output + "\",\"representation\":\"storage\"}}}",
-				ContentType.APPLICATION_JSON);
-		post = new HttpPost(CONFLUENCE_REQUEST_URL);
-		post.setHeader("Authorization", "Basic " + Base64.encodeBase64String(CONFLUENCE_CREDENTIALS.getBytes()));
-		post.setEntity(input);
+	/**
+	 *
+	 * @param documentSize Counts the written characters, null if they are not counted.
+	 */
+	private void writeHtmlDocumentation(final List<DocController> controllers, final Set<ClassDoc> dataStructs,
+										final File file, final DocumentSize documentSize) throws Exception {
+		File parentFile = file.getParentFile();
+		if (parentFile != null) {
+			if (parentFile.mkdirs()) {
+				logger.log(
+						Level.FINEST,
+						"The directory "
+								+ parentFile.getAbsolutePath()
+								+ " was created, along with all necessary parent directories.");
+			}
+		}
+		logger.log(Level.INFO,
+				"Write generated velocity to " + file.getAbsolutePath());
+		logTemplate();
+		mergeTemplate(velocityTemplateFileName, createVelocityContext(controllers, dataStructs), file, documentSize);
+	}
 
+	/**
+	 * Merges a template straight into the given file.
+	 *
+	 * @param templateName .
+	 * @param ctx .
+	 * @param file .
+	 * @throws Exception .
+	 */
+	private void mergeTemplate(final String templateName, final VelocityContext ctx, final File file)
+			throws Exception {
+		mergeTemplate(templateName, ctx, file, null);
+	}
+
+	/**
+	 *
+	 * @param documentSize Counts the written characters, and is told once the file is closed.
+	 * Null if they are not counted.
+	 */
+	private void mergeTemplate(final String templateName, final VelocityContext ctx, final File file,
+							   final DocumentSize documentSize) throws Exception {
+		try (Writer fileWriter = Files.newBufferedWriter(file.toPath(), HTML_ENCODING)) {
+			Writer velocityfileWriter = documentSize == null ? fileWriter : documentSize.countWrites(fileWriter);
+			getTemplateRenderer().merge(templateName, ctx, velocityfileWriter);
+			velocityfileWriter.flush();
+		}
+		if (documentSize != null) {
+			documentSize.written();
+		}
+	}
+
+	/**
+	 * Uploads the generated documentation to Confluence, if it is configured
+	 * (see {@link RestDocConstants#CONFLUENCE_URL_FLAG}). <br />
+	 * Documentation of up to {@link RestDocConstants#CONFLUENCE_MAX_PAGE_SIZE} characters is uploaded as a single page,
+	 * read from the written file. Larger documentation is uploaded as a page listing its children
+	 * and a child page per controller: the child pages are rendered one at a time, as they are uploaded,
+	 * and uploaded concurrently (see {@link RestDocConstants#CONFLUENCE_PARALLELISM_FLAG}).
+	 * The upload may run while the file is written, it waits until the size of the documentation is known:
+	 * as soon as the written characters exceed the maximal size, or once the file is written.
+	 * The pages whose content did not change since they were last uploaded are skipped,
+	 * if a manifest is kept (see {@link RestDocConstants#CONFLUENCE_MANIFEST_FLAG}).
+	 *
+	 * @param controllers .
+	 * @param dataStructs The enums to document.
+	 * @param file The file the documentation is written to.
+	 * @param documentSize The size of the documentation, reported while the file is written.
+	 * @throws IOException If the documentation could not be written, or any of the pages could not be uploaded.
+	 * @throws Exception If a page could not be rendered.
+	 */
+	private void uploadToConfluence(final List<DocController> controllers, final Set<ClassDoc> dataStructs,
+									final File file, final DocumentSize documentSize) throws Exception {
+		if (!isConfluenceConfigured()) {
+			return;
+		}
+		ConfluenceManifest manifest = StringUtils.isBlank(confluenceManifestPath) ? null
+				: ConfluenceManifest.load(new File(confluenceManifestPath), confluenceUrl, confluenceSpace);
+		ConfluencePublisher publisher = new ConfluencePublisher(confluenceUrl, confluenceSpace,
+				confluenceCredentials, confluenceParallelism, confluenceRetries, manifest);
 		try {
-			response = client.execute(post);
-			if (response.getStatusLine().getStatusCode() == 200) {
-				System.out.printf("Uploaded %s OK\n", key);
-			} else {
-				BufferedReader br = new BufferedReader(
-						new InputStreamReader((response.getEntity().getContent())));
-
-				System.out.println("Error uploading " + key);
-				System.out.println("Server response:");
-				String buffer;
-				while ((buffer = br.readLine()) != null) {
-					System.out.println(buffer);
+			if (!documentSize.isLargerThanLimit()) {
+				String documentation = new String(Files.readAllBytes(file.toPath()), HTML_ENCODING);
+				publisher.publish(new ConfluencePublisher.Page(confluenceTitle,
+						ConfluencePublisher.toStorageFormat(documentation)), null);
+				return;
+			}
+			logger.log(Level.INFO, "The documentation is larger than " + RestDocConstants.CONFLUENCE_MAX_PAGE_SIZE
+					+ " characters, uploading a Confluence page per controller.");
+			String parentId = publisher.publish(new ConfluencePublisher.Page(confluenceTitle,
+					ConfluencePublisher.CHILDREN_MACRO), null);
+			// EACH PAGE IS RENDERED WHEN A THREAD IS FREE TO PUBLISH IT
+			final Iterator<DocController> remaining = controllers.iterator();
+			final Set<String> titles = new HashSet<>();
+			publisher.publishAll(new ConfluencePublisher.PageProducer() {
+				@Override
+				public ConfluencePublisher.Page next() throws IOException {
+					if (!remaining.hasNext()) {
+						return null;
+					}
+					DocController controller = remaining.next();
+					String title = confluenceTitle + " - " + controller.getName();
+					if (!titles.add(title)) {
+						// The controllers of a class share its name
+						title = title + " " + controller.getUri();
+						titles.add(title);
+					}
+					try {
+						String html = generateHtmlDocumentation(Collections.singletonList(controller), dataStructs);
+						return new ConfluencePublisher.Page(title, ConfluencePublisher.toStorageFormat(html));
+					} catch (IOException e) {
+						throw e;
+					} catch (Exception e) {
+						throw new IOException("Could not render the Confluence page " + title, e);
+					}
+				}
+			}, parentId);
+		} finally {
+			publisher.close();
+			logger.log(Level.INFO, "Uploaded " + publisher.getUploadedPages() + " Confluence pages, "
+					+ publisher.getSkippedPages() + " pages did not change.");
+			if (manifest != null) {
+				try {
+					manifest.save();
+				} catch (IOException e) {
+					logger.log(Level.WARNING, "Could not write the Confluence manifest " + confluenceManifestPath
+							+ ". Exception was: " + e);
 				}
 			}
-		} catch (Exception e) {
-			System.out.println("Issue uploading content to Confluence:");
-			e.printStackTrace();
+		}
+	}
 
+	private boolean isConfluenceConfigured() {
+		if (StringUtils.isBlank(confluenceUrl)) {
+			return false;
+		}
+		if (StringUtils.isBlank(confluenceSpace) || StringUtils.isBlank(confluenceCredentials)) {
+			logger.log(Level.WARNING, "Cannot upload the documentation to Confluence, "
+					+ RestDocConstants.CONFLUENCE_SPACE_FLAG + " and " + RestDocConstants.CONFLUENCE_CREDENTIALS_FLAG
+					+ " (or the " + RestDocConstants.CONFLUENCE_CREDENTIALS_ENV
+					+ " environment variable) must be set along with " + RestDocConstants.CONFLUENCE_URL_FLAG + ".");
+			return false;
 		}
-		post.releaseConnection();
+		return true;
 	}
 
 	/**
@@ -410,27 +945,47 @@ public class Generator {
 	 * @return string that contains the documentation in HTML form.
 	 * @throws Exception .
 	 */
-	public String generateHtmlDocumentation(final List<DocController> controllers, final Set dataStructs)
+	public String generateHtmlDocumentation(final List<DocController> controllers, final Set<ClassDoc> dataStructs)
 			throws Exception {
+		Writer writer = new StringWriter();
+		generateHtmlDocumentation(controllers, dataStructs, writer);
+		return writer.toString();
+	}
+
+	/**
+	 * Creates the REST API documentation in HTML form, using the controllers'
+	 * data and the velocity template, and writes it to the given writer.
+	 *
+	 * @param controllers .
+	 * @param dataStructs The enums to document.
+	 * @param writer The writer the documentation is merged into.
+	 * @throws Exception .
+	 */
+	public void generateHtmlDocumentation(final List<DocController> controllers, final Set<ClassDoc> dataStructs,
+										  final Writer writer) throws Exception {
+		getTemplateRenderer().merge(velocityTemplateFileName, createVelocityContext(controllers, dataStructs), writer);
+	}
+
+	/**
+	 * The renderer is shared by all the runs of the JVM that use the same template path,
+	 * velocity is initialized and the templates are parsed by the first of them.
+	 *
+	 * @return The renderer of the template path.
+	 */
+	private TemplateRenderer getTemplateRenderer() {
+		return TemplateRenderer.forTemplatePath(isUserDefineTemplatePath ? velocityTemplatePath : null);
+	}
 
+	private void logTemplate() {
 		logger.log(Level.INFO, "Generate velocity using template: "
 				+ velocityTemplatePath
 				+ (isUserDefineTemplatePath ? File.separator
 				+ velocityTemplateFileName + " (got template path from user)"
 				: "(default template path)"));
+	}
 
-		Properties p = new Properties();
-		p.setProperty("directive.set.null.allowed", "true");
-		if (isUserDefineTemplatePath) {
-			p.setProperty("file.resource.loader.path", velocityTemplatePath);
-		} else {
-			p.setProperty(RuntimeConstants.RESOURCE_LOADER, "classpath");
-			p.setProperty("classpath.resource.loader.class",
-					ClasspathResourceLoader.class.getName());
-		}
-
-		Velocity.init(p);
-
+	private VelocityContext createVelocityContext(final List<DocController> controllers,
+			final Set<ClassDoc> dataStructs) {
 		VelocityContext ctx = new VelocityContext();
 		List<String> enumList = new ArrayList<>();
 
@@ -447,33 +1002,104 @@ public class Generator {
 		ctx.put("docCssPath", docCssPath);
 		ctx.put("dataStructs", l);
 		ctx.put("enumList", enumList);
+		return ctx;
+	}
 
-		Writer writer = new StringWriter();
-
-		Template template = Velocity.getTemplate(velocityTemplateFileName);
-		template.merge(ctx, writer);
+	/**
+	 * Generates the controllers of all the given classes.
+	 * If parallelism is greater than 1 the classes are extracted by a fork-join pool of that size,
+	 * the result keeps the order of the given classes either way.
+	 * The javadoc model of the context must then be guarded by a lock (see {@link SynchronizedRootDoc}),
+	 * the threads wait for one another while they read it.
+	 *
+	 * @param classes .
+	 * @param parallelism the number of worker threads.
+	 * @return the generated controllers of each class, null for classes that are not controllers.
+	 * @throws Exception .
+	 */
+	static Map<ClassDoc, List<DocController>> generateControllers(final GenerationContext context,
+			final ClassDoc[] classes, final int parallelism)
+			throws Exception {
+		Map<ClassDoc, List<DocController>> controllersByClass = new LinkedHashMap<ClassDoc, List<DocController>>();
+		List<Callable<List<DocController>>> tasks = new ArrayList<>(classes.length);
+		for (final ClassDoc classDoc : classes) {
+			final GenerationContext classContext = context.fork();
+			tasks.add(new Callable<List<DocController>>() {
+				@Override
+				public List<DocController> call() throws Exception {
+					GenerationMetrics.Span span = classContext.getMetrics().start();
+					try {
+						return generateControllers(classContext, classDoc);
+					} finally {
+						classContext.getMetrics().recordController(classDoc.qualifiedTypeName(), span);
+					}
+				}
+			});
+		}
+		if (parallelism > 1 && classes.length > 1) {
+			logger.log(Level.INFO, "Extracting " + classes.length + " classes using " + parallelism + " threads.");
+		}
+		List<List<DocController>> results = invokeAll(tasks, parallelism);
+		for (int i = 0; i < classes.length; i++) {
+			controllersByClass.put(classes[i], results.get(i));
+		}
+		return controllersByClass;
+	}
 
-		return writer.toString();
+	/**
+	 * Runs the given tasks, by a fork-join pool of the given size if it is greater than 1.
+	 * The first failure of a task is thrown as is.
+	 *
+	 * @param tasks .
+	 * @param parallelism the number of worker threads.
+	 * @return the results of the tasks, in the order of the tasks.
+	 * @throws Exception .
+	 */
+	private static <T> List<T> invokeAll(final List<Callable<T>> tasks, final int parallelism) throws Exception {
+		List<T> results = new ArrayList<>(tasks.size());
+		if (parallelism <= 1 || tasks.size() <= 1) {
+			for (Callable<T> task : tasks) {
+				results.add(task.call());
+			}
+			return results;
+		}
 
+		ForkJoinPool pool = new ForkJoinPool(parallelism);
+		try {
+			List<Future<T>> futures = new ArrayList<>(tasks.size());
+			for (Callable<T> task : tasks) {
+				futures.add(pool.submit(task));
+			}
+			for (Future<T> future : futures) {
+				try {
+					results.add(future.get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof Exception) {
+						throw (Exception) cause;
+					}
+					throw e;
+				}
+			}
+			return results;
+		} finally {
+			pool.shutdownNow();
+		}
 	}
 
-	private static List<DocController> generateControllers(final ClassDoc[] classes)
-			throws Exception {
-		List<DocController> controllersList = new LinkedList<DocController>();
-		for (ClassDoc classDoc : classes) {
-			List<DocController> controllers = generateControllers(classDoc);
-			if (controllers == null || controllers.isEmpty()) {
-				continue;
-			}
-			controllersList.addAll(controllers);
+	private static void addControllers(final List<DocController> controllersList,
+									   final List<DocController> controllers) {
+		if (controllers == null || controllers.isEmpty()) {
+			return;
 		}
-		return controllersList;
+		controllersList.addAll(controllers);
 	}
 
-	private static List<DocController> generateControllers(final ClassDoc classDoc)
+	private static List<DocController> generateControllers(final GenerationContext context,
+			final ClassDoc classDoc)
 			throws Exception {
 		List<DocController> controllers = new LinkedList<DocController>();
-		List<DocAnnotation> annotations = generateAnnotations(classDoc.annotations());
+		DocAnnotations annotations = generateAnnotations(classDoc.annotations());
 
 		if (Utils.filterOutControllerClass(classDoc, annotations)) {
 			return null;
@@ -512,42 +1138,35 @@ public class Generator {
 					+ controllerClassName
 					+ " is missing request mapping annotation's value (uri).");
 		}
-		for (String uri : uriArray) {
-			DocController controller = new DocController(controllerClassName);
-			Map<String, Type> parameterizedTypes = new HashMap<>();
-			SortedMap<String, DocMethod> generatedMethods = generateMethods(classDoc.methods(), parameterizedTypes);
-			Type superCls = classDoc.superclassType();
-			while (superCls != null) {
-				ClassDoc supCls = documentation.classNamed(superCls.qualifiedTypeName());
-				if (supCls == null || isJavaType(superCls.qualifiedTypeName())) {
-					break;
-				}
-
-				// Check for parameterized type
-				// If parameterized, try to create a mapping between the type variable and the type
-				ParameterizedType pt = superCls.asParameterizedType();
-				if (pt != null) {
-					Type[] params = pt.typeArguments();
-					int index = 0;
-					for (TypeVariable var : classDoc.superclass().typeParameters()) {
-						parameterizedTypes.put(var.toString(), documentation.classNamed(params[index].qualifiedTypeName()));
-						index++;
-					}
-				}
+		// The methods do not depend on the controller's URI,
+		// so they are generated once and shared by the controllers of all the URIs.
+		// The bindings of the controller bind the type variables of its base classes.
+		TypeVariableResolver.Bindings bindings =
+				context.getTypeResolver().bindingsOf(classDoc, TypeVariableResolver.Bindings.EMPTY);
+		SortedMap<String, DocMethod> generatedMethods =
+				generateMethods(context, getMappedMethods(classDoc.methods()), bindings);
+		Type superCls = classDoc.superclassType();
+		while (superCls != null) {
+			ClassDoc supCls = context.classNamed(superCls.qualifiedTypeName());
+			if (supCls == null || isJavaType(superCls.qualifiedTypeName())) {
+				break;
+			}
 
-				MethodDoc[] parentMethods = superCls.asClassDoc().methods();
-				generatedMethods.putAll(generateMethods(parentMethods, parameterizedTypes));
+			generatedMethods.putAll(getInheritedMethods(context, superCls, bindings));
 
-				superCls = supCls.superclassType();
-			}
+			superCls = supCls.superclassType();
+		}
 
-			if (generatedMethods.isEmpty()) {
-				logger.log(Level.WARNING, "Could not find methods in controller: "
-						+ controller.getName() + " or its parent class(es).");
-				continue;
-			}
+		if (generatedMethods.isEmpty()) {
+			logger.log(Level.WARNING, "Could not find methods in controller: "
+					+ controllerClassName + " or its parent class(es).");
+			return controllers;
+		}
+		SortedMap<String, DocMethod> sharedMethods = Collections.unmodifiableSortedMap(generatedMethods);
 
-			controller.setMethods(generatedMethods);
+		for (String uri : uriArray) {
+			DocController controller = new DocController(controllerClassName);
+			controller.setMethods(sharedMethods);
 			if (uri.endsWith("/*")) {
 				uri = uri.substring(0, uri.length() - 2);
 			}
@@ -559,9 +1178,9 @@ public class Generator {
 		return controllers;
 	}
 
-	private static List<DocAnnotation> generateAnnotations(
+	private static DocAnnotations generateAnnotations(
 			final AnnotationDesc[] annotations) {
-		List<DocAnnotation> docAnnotations = new LinkedList<DocAnnotation>();
+		List<DocAnnotation> docAnnotations = new ArrayList<DocAnnotation>(annotations.length);
 		for (AnnotationDesc annotationDesc : annotations) {
 			// Skip non-spring annotations (only Valid for now)
 			if (annotationDesc.annotationType().name().equals("Valid")) {
@@ -569,16 +1188,40 @@ public class Generator {
 			}
 			docAnnotations.add(Utils.createNewAnnotation(annotationDesc));
 		}
-		return docAnnotations;
+		return new DocAnnotations(docAnnotations);
 	}
 
-	private static SortedMap<String, DocMethod> generateMethods(
-			final MethodDoc[] methods, Map<String, Type> parameterizedTypes)
+	// The methods of a base class are generated once per resolved type arguments, and shared by all
+	// its subclasses. The mapping of the methods does not depend on the type arguments, it is done once per base class.
+	// The type arguments of the base class refer to the type variables of its subclass, bound by the given bindings.
+	private static SortedMap<String, DocMethod> getInheritedMethods(final GenerationContext context,
+			final Type superCls, final TypeVariableResolver.Bindings bindings)
 			throws Exception {
-		SortedMap<String, DocMethod> docMethods = new TreeMap<String, DocMethod>();
+		InheritedMethodsCache cache = context.getInheritedMethodsCache();
+		String cacheKey = context.getTypeResolver().key(superCls, bindings);
+		InheritedMethodsCache.Methods cached = cache.getMethods(cacheKey);
+		if (cached != null) {
+			return cached.getMethods();
+		}
+
+		ClassDoc superClassDoc = superCls.asClassDoc();
+		List<InheritedMethodsCache.MappedMethod> mappedMethods =
+				cache.getMappedMethods(superClassDoc.qualifiedTypeName());
+		if (mappedMethods == null) {
+			mappedMethods = cache.putMappedMethods(superClassDoc.qualifiedTypeName(),
+					getMappedMethods(superClassDoc.methods()));
+		}
+		SortedMap<String, DocMethod> methods = generateMethods(context, mappedMethods,
+				context.getTypeResolver().bindingsOf(superCls, bindings));
+		return cache.putMethods(cacheKey, new InheritedMethodsCache.Methods(
+				Collections.unmodifiableSortedMap(methods))).getMethods();
+	}
 
+	// Returns the methods that have a RequestMapping annotation, with their HTTP methods and URIs.
+	private static List<InheritedMethodsCache.MappedMethod> getMappedMethods(final MethodDoc[] methods) {
+		List<InheritedMethodsCache.MappedMethod> mappedMethods = new ArrayList<>(methods.length);
 		for (MethodDoc methodDoc : methods) {
-			List<DocAnnotation> annotations = generateAnnotations(methodDoc.annotations());
+			DocAnnotations annotations = generateAnnotations(methodDoc.annotations());
 
 			// Does not handle methods without a RequestMapping annotation.
 			if (Utils.filterOutMethod(methodDoc, annotations)) {
@@ -594,56 +1237,40 @@ public class Generator {
 				methodArray = new String[]{"GET", "POST"};
 				//continue;
 			}
-
-			List<DocHttpMethod> docHttpMethodArray = new ArrayList<>();
-			for (int i = 0; i < methodArray.length; i++) {
-				if (methodDoc.returnType().typeName().equals("ModelAndView")) {
-					continue;
-				}
-				// Hack-ily handle parameterized-parameterized return type
-				ParameterizedType pt = methodDoc.returnType().asParameterizedType();
-				LinkedList<ParameterizedType> ptList = new LinkedList<>();
-				Set<Type> params = new HashSet<>();
-				if (pt != null) {
-					ptList.add(pt);
-				}
-				// Find all type variables
-				while (!ptList.isEmpty()) {
-					pt = ptList.pop();
-					Type[] args = pt.typeArguments();
-					for (Type arg : args) {
-						pt = arg.asParameterizedType();
-						if (pt == null) {
-							if (isJavaType(arg.qualifiedTypeName()) || documentation.classNamed(arg.qualifiedTypeName()) != null) {
-								continue;
-							}
-							params.add(arg);
-						} else {
-							ptList.add(pt);
-						}
-					}
-				}
-				// Map type variable to type
-				for (Type param : params) {
-					String key = param.simpleTypeName();
-					Type value = parameterizedTypes.get(key);
-					parameterizedTypes.put(key, value);
-					if (value == null) {
-						value = documentation.classNamed(param.qualifiedTypeName());
-						parameterizedTypes.put(key, value);
-					}
-				}
-
-				docHttpMethodArray.add(generateHttpMethod(methodDoc,
-						methodArray[i], annotations, parameterizedTypes));
-			}
 			// get all URIs
 			String[] uriArray = requestMappingAnnotation.getValue();
 			if (uriArray == null || uriArray.length == 0) {
 				uriArray = new String[]{"/" + methodDoc.name()};
 			}
+			mappedMethods.add(new InheritedMethodsCache.MappedMethod(methodDoc, annotations, methodArray, uriArray));
+		}
+		return mappedMethods;
+	}
+
+	private static SortedMap<String, DocMethod> generateMethods(final GenerationContext context,
+			final List<InheritedMethodsCache.MappedMethod> methods, final TypeVariableResolver.Bindings bindings)
+			throws Exception {
+		SortedMap<String, DocMethod> docMethods = new TreeMap<String, DocMethod>();
+
+		for (InheritedMethodsCache.MappedMethod mappedMethod : methods) {
+			MethodDoc methodDoc = mappedMethod.getMethodDoc();
+			DocAnnotations annotations = mappedMethod.getAnnotations();
+			String[] methodArray = mappedMethod.getHttpMethods();
+
+			List<DocHttpMethod> docHttpMethodArray = new ArrayList<>();
+			if (!methodDoc.returnType().typeName().equals("ModelAndView")) {
+				// Everything but the request example is the same for all the HTTP methods,
+				// so it is generated for the first one and shared by the others.
+				DocHttpMethod firstHttpMethod = generateHttpMethod(context, methodDoc,
+						methodArray[0], annotations, bindings);
+				docHttpMethodArray.add(firstHttpMethod);
+				for (int i = 1; i < methodArray.length; i++) {
+					docHttpMethodArray.add(generateSharedHttpMethod(context, methodDoc, firstHttpMethod,
+							methodArray[i], bindings));
+				}
+			}
 			if (!docHttpMethodArray.isEmpty()) {
-				for (String uri : uriArray) {
+				for (String uri : mappedMethod.getUris()) {
 					if (uri.endsWith("/*")) {
 						uri = uri.substring(0, uri.length() - 2);
 					}
@@ -668,19 +1295,19 @@ public class Generator {
 		return docMethods;
 	}
 
-	private static DocHttpMethod generateHttpMethod(final MethodDoc methodDoc,
+	private static DocHttpMethod generateHttpMethod(final GenerationContext context, final MethodDoc methodDoc,
 													final String httpMethodName,
-													final List<DocAnnotation> annotations,
-													Map<String,
-													Type> parameterizedTypes)
+													final DocAnnotations annotations,
+													final TypeVariableResolver.Bindings bindings)
 			throws Exception {
 
 		DocHttpMethod httpMethod = new DocHttpMethod(methodDoc.name(),
 				httpMethodName);
 		httpMethod.setDescription(methodDoc.commentText());
-		httpMethod.setParams(generateParameters(methodDoc, parameterizedTypes));
-		httpMethod.setReturnDetails(generateReturnDetails(methodDoc, parameterizedTypes));
-		generateExamples(httpMethod, annotations, parameterizedTypes);
+		httpMethod.setParams(generateParameters(context, methodDoc, bindings));
+		TypeVariableResolver.BoundType responseBodyType = getResponseBodyType(context, methodDoc, bindings);
+		httpMethod.setReturnDetails(generateReturnDetails(context, methodDoc, responseBodyType));
+		generateExamples(context, methodDoc, httpMethod, annotations, bindings, responseBodyType);
 		httpMethod.setPossibleResponseStatuses(Utils
 				.getPossibleResponseStatusesAnnotation(annotations));
 
@@ -692,30 +1319,63 @@ public class Generator {
 		return httpMethod;
 	}
 
-	private static void generateExamples(final DocHttpMethod httpMethod,
-										 final List<DocAnnotation> annotations, Map<String, Type> parameterizedTypes)
+	private static DocHttpMethod generateSharedHttpMethod(final GenerationContext context,
+														  final MethodDoc methodDoc,
+														  final DocHttpMethod prototype,
+														  final String httpMethodName,
+														  final TypeVariableResolver.Bindings bindings) {
+		DocHttpMethod httpMethod = new DocHttpMethod(prototype, httpMethodName);
+		if (StringUtils.isBlank(httpMethod.getHttpMethodName())) {
+			throw new IllegalArgumentException("method " + prototype.getMethodSignatureName()
+					+ " is missing request mapping annotation's method (http method).");
+		}
+
+		// The request body filter gets the HTTP method, it may choose another parameter
+		if (prototype.getJsonRequestExample() == null) {
+			DocParameter requestBodyParam = getRequestBodyParam(context, httpMethod);
+			if (requestBodyParam != getRequestBodyParam(context, prototype)) {
+				httpMethod.setRequestExample(lazyRequestExample(context, methodDoc, httpMethod, bindings));
+			}
+		}
+		return httpMethod;
+	}
+
+	private static DocParameter getRequestBodyParam(final GenerationContext context, final DocHttpMethod httpMethod) {
+		for (DocParameter docParameter : httpMethod.getParams()) {
+			if (context.getRequestBodyParamFilter().filter(httpMethod, docParameter)) {
+				return docParameter;
+			}
+		}
+		return null;
+	}
+
+	private static void generateExamples(final GenerationContext context, final MethodDoc methodDoc,
+										 final DocHttpMethod httpMethod, final DocAnnotations annotations,
+										 final TypeVariableResolver.Bindings bindings,
+										 final TypeVariableResolver.BoundType responseBodyType)
 			throws Exception {
 		DocJsonResponseExample jsonResponseExampleAnnotation = Utils.getJsonResponseExampleAnnotation(annotations);
 		DocJsonRequestExample jsonRequestExampleAnnotation = Utils.getJsonRequestExampleAnnotation(annotations);
-		String requestExample;
+		DocExample requestExample;
 		if (jsonRequestExampleAnnotation != null) {
 			httpMethod.setJsonRequesteExample(jsonRequestExampleAnnotation);
-			requestExample = jsonRequestExampleAnnotation.generateJsonRequestBody();
+			requestExample = DocExample.of(jsonRequestExampleAnnotation.generateJsonRequestBody());
 		} else {
-			requestExample = generateRequestExmple(httpMethod, parameterizedTypes);
+			requestExample = lazyRequestExample(context, methodDoc, httpMethod, bindings);
 		}
 		httpMethod.setRequestExample(requestExample);
 
-		String responseExample;
+		DocExample responseExample;
 		if (jsonResponseExampleAnnotation != null) {
 			httpMethod.setJsonResponseExample(jsonResponseExampleAnnotation);
-			responseExample = jsonResponseExampleAnnotation.generateJsonResponseBody();
+			responseExample = DocExample.of(jsonResponseExampleAnnotation.generateJsonResponseBody());
 		} else {
-			responseExample = generateResponseExample(httpMethod, parameterizedTypes);
+			responseExample = lazyResponseExample(context, httpMethod, responseBodyType == null
+					? TypeVariableResolver.Bindings.EMPTY : responseBodyType.getBindings());
 		}
 		try {
 			if (httpMethod.getReturnDetails().getReturnType().simpleTypeName().equals("ResponseEntity")) {
-				responseExample = RESPONSE_HAS_NO_BODY_MSG;
+				responseExample = DocExample.of(RESPONSE_HAS_NO_BODY_MSG);
 			}
 		} catch (NullPointerException e) {
 			;
@@ -724,10 +1384,33 @@ public class Generator {
 
 	}
 
+	// The examples are generated when they are first read, possibly by another thread,
+	// so they get a context of their own
+	private static DocExample lazyRequestExample(final GenerationContext context, final MethodDoc methodDoc,
+												 final DocHttpMethod httpMethod,
+												 final TypeVariableResolver.Bindings bindings) {
+		return new DocExample() {
+			@Override
+			protected String generate() {
+				return generateRequestExmple(context.fork(), methodDoc, httpMethod, bindings);
+			}
+		};
+	}
+
+	private static DocExample lazyResponseExample(final GenerationContext context, final DocHttpMethod httpMethod,
+												  final TypeVariableResolver.Bindings bindings) {
+		return new DocExample() {
+			@Override
+			protected String generate() {
+				return generateResponseExample(context.fork(), httpMethod, bindings);
+			}
+		};
+	}
+
 	// Test for Java type
 	private static String[] blackList = {"LocalDate", "Jwt", "SimpleDateFormat"};
 
-	private static boolean isJavaType(String typeName) {
+	static boolean isJavaType(String typeName) {
 		String simpleTypeName = typeName.substring(typeName.lastIndexOf(".") + 1);
 		return typeName.startsWith("java") || Arrays.asList(blackList).indexOf(simpleTypeName) >= 0;
 	}
@@ -743,8 +1426,8 @@ public class Generator {
 		return isJavaGenericClass(type.qualifiedTypeName());
 	}
 
-	private static boolean isEnum (Type type) {
-		ClassDoc doc = documentation.classNamed(type.qualifiedTypeName());
+	private static boolean isEnum(final GenerationContext context, Type type) {
+		ClassDoc doc = context.classNamed(type.qualifiedTypeName());
 		if (doc == null) {
 			return false;
 		} else {
@@ -752,43 +1435,41 @@ public class Generator {
 		}
 	}
 
-	// Returns the fields and any additional subfields of a object
-	private static FieldDoc[] getFields(String name) {
-		ClassDoc cls = documentation.classNamed(name);
-		if (cls == null || cls.isEnum()) {
-			return new FieldDoc[0];
-		}
-		if (cls.superclass() == null) {
-			return cls.fields();
-		}
-		String parentCls = cls.superclass().qualifiedTypeName();
-		if (!isJavaType(parentCls)) {
-			return (FieldDoc[]) ArrayUtils.addAll(cls.fields(), getFields(parentCls));
-		} else {
-			return cls.fields();
+	// Returns the fields and any additional subfields of a object, without the constants
+	static List<FieldDoc> getFields(final GenerationContext context, String name) {
+		FieldIndex index = context.getFieldIndex();
+		List<FieldDoc> fields = index.get(name);
+		if (fields == null) {
+			fields = index.put(name, buildFields(context, name));
 		}
+		return fields;
 	}
 
-	// Returns the type of the type variable
-	private static Type findParameterizedType (Type type, Map<String, Type> parameterizedTypes) {
-		String typeName = type.qualifiedTypeName();
-		Type value = type;
-		if (parameterizedTypes == null) {
-			return type;
-		}
-		Type t = parameterizedTypes.get(typeName);
-		while (t != null) {
-			ClassDoc doc = documentation.classNamed(t.qualifiedTypeName());
-			if (doc != null) {
-				value = t;
+	private static List<FieldDoc> buildFields(final GenerationContext context, String name) {
+		ClassDoc cls = context.classNamed(name);
+		if (cls == null || cls.isEnum()) {
+			return Collections.emptyList();
+		}
+		List<FieldDoc> fields = new ArrayList<>();
+		for (FieldDoc field : cls.fields()) {
+			if (field.constantValueExpression() == null) {
+				fields.add(field);
+			}
+		}
+		if (cls.superclass() != null) {
+			String parentCls = cls.superclass().qualifiedTypeName();
+			if (!isJavaType(parentCls)) {
+				fields.addAll(getFields(context, parentCls));
 			}
-			t = parameterizedTypes.get(t);
 		}
-		return value;
+		return fields;
 	}
 
-
-	private static Map<String, Object> handleGenericClass (String key, Type value, Map<String, Type> parameterizedTypes) {
+	// The element of a collection is checked for cycles the same way as a field,
+	// a cycle is cut by the simple name of the element type.
+	// The type arguments of the collection are resolved with the given bindings.
+	private static Map<String, Object> handleGenericClass(final GenerationContext context, String key, Type value,
+			TypeVariableResolver.Bindings bindings) {
 		String typeName = value.qualifiedTypeName();
 		Map<String, Object> mappy = new HashMap<>();
 		if (typeName.equals("java.util.Map")) {
@@ -796,17 +1477,27 @@ public class Generator {
 			Type[] args = value.asParameterizedType().typeArguments();
 			Map<String, Object> mapType = new HashMap<>();
 			if (args.length == 2) {
-				value = findParameterizedType(args[1], parameterizedTypes);
-				paramStack.add(value.qualifiedTypeName());
+				TypeVariableResolver.BoundType bound = context.getTypeResolver().resolve(args[1], bindings);
+				value = bound.getType();
+				bindings = bound.getBindings();
+				String valueTypeName = value.qualifiedTypeName();
+				if (context.isOnStack(valueTypeName) && !isJavaType(valueTypeName)) {
+					context.recordCycleCut(valueTypeName);
+					mapType.put(args[0].simpleTypeName(), value.simpleTypeName());
+					mappy.put(key, mapType);
+					return mappy;
+				}
+				context.pushType(valueTypeName);
 				if (isJavaGenericClass(value)) {
-					mappy.put(key, handleGenericClass(args[0].simpleTypeName(), value, parameterizedTypes));
-				} else if (isJavaType(value) || value.isPrimitive() || isEnum(value)) {
+					mappy.put(key, handleGenericClass(context, args[0].simpleTypeName(), value, bindings));
+				} else if (isJavaType(value) || value.isPrimitive() || isEnum(context, value)) {
 					mapType.put(args[0].simpleTypeName(), value.simpleTypeName());
 					mappy.put(key, mapType);
 				} else {
-					mapType.put(args[0].simpleTypeName(), generateJSONBody(value, parameterizedTypes));
+					mapType.put(args[0].simpleTypeName(), generateJSONBody(context, value, bindings));
 					mappy.put(key, mapType);
 				}
+				context.popType();
 			} else {
 				mappy.put(key, "Object");
 			}
@@ -814,62 +1505,96 @@ public class Generator {
 			// Handle Collections
 			Type[] args = value.asParameterizedType().typeArguments();
 			if (args.length == 1) {
-				value = findParameterizedType(args[0], parameterizedTypes);
+				TypeVariableResolver.BoundType bound = context.getTypeResolver().resolve(args[0], bindings);
+				value = bound.getType();
+				bindings = bound.getBindings();
+				String elementTypeName = value.qualifiedTypeName();
+				if (context.isOnStack(elementTypeName) && !isJavaType(elementTypeName)) {
+					context.recordCycleCut(elementTypeName);
+					mappy.put(key, new String[]{value.simpleTypeName()});
+					return mappy;
+				}
 
-				paramStack.add(value.qualifiedTypeName());
+				context.pushType(elementTypeName);
 
 				if (isJavaGenericClass(value)) {
-					mappy = handleGenericClass(key, value, parameterizedTypes);
-				} else if (isJavaType(value) || value.isPrimitive() || isEnum(value)) {
+					mappy = handleGenericClass(context, key, value, bindings);
+				} else if (isJavaType(value) || value.isPrimitive() || isEnum(context, value)) {
 					mappy.put(key, new String[]{value.simpleTypeName()});
 				} else {
-					Map temp = generateJSONBody(value, parameterizedTypes);
-					Map[] array = new Map[]{temp};
+					Map<String, Object> temp = generateJSONBody(context, value, bindings);
+					Map<?, ?>[] array = new Map<?, ?>[]{temp};
 					mappy.put(key, array);
 				}
+				context.popType();
 			} else {
 				mappy.put(key, "List");
 			}
 		}
-		paramStack.remove(paramStack.size() - 1);
 		return mappy;
 	}
 
 	// Generates the JSON body for requests and responses
-	private static Map generateJSONBody(Type type, Map<String, Type> parameterizedTypes) {
+	// The type is expected to be on top of the stack, a body that does not depend on
+	// the types below it is cached, and reused where the same types are not being traversed.
+	// Beyond the maximal depth the body is empty, and the field is documented as an Object.
+	// The type arguments of the type are resolved with the given bindings.
+	static Map<String, Object> generateJSONBody(final GenerationContext context, Type type,
+			TypeVariableResolver.Bindings bindings) {
+		if (context.isDepthExceeded()) {
+			context.recordDepthCut();
+			return Collections.emptyMap();
+		}
+		TypeSchemaCache cache = context.getSchemaCache();
+		String cacheKey = context.getTypeResolver().key(type, bindings);
+		TypeSchemaCache.Entry<Map<String, Object>> cached = cache.getExample(cacheKey);
+		if (cached != null && context.reuse(cached)) {
+			return cached.getSchema();
+		}
+		GenerationContext.Traversal outer = context.beginTraversal();
+		Map<String, Object> mappy = Collections.unmodifiableMap(buildJSONBody(context, type, bindings));
+		TypeSchemaCache.Entry<Map<String, Object>> entry = context.endTraversal(outer, mappy);
+		if (entry != null) {
+			cache.putExample(cacheKey, entry);
+		}
+		return mappy;
+	}
+
+	private static Map<String, Object> buildJSONBody(final GenerationContext context, Type type,
+			TypeVariableResolver.Bindings bindings) {
 		Map<String, Object> mappy = new HashMap<>();
+		TypeVariableResolver resolver = context.getTypeResolver();
+		TypeVariableResolver.Bindings fieldBindings = resolver.bindingsOf(type, bindings);
 
-		for (FieldDoc field : getFields(type.qualifiedTypeName())) {
+		for (FieldDoc field : getFields(context, type.qualifiedTypeName())) {
 			String key = field.name();
-			Type value = findParameterizedType(field.type(), parameterizedTypes);
+			TypeVariableResolver.BoundType bound = resolver.resolve(field.type(), fieldBindings);
+			Type value = bound.getType();
 			String typeName = value.qualifiedTypeName();
-			ClassDoc doc = documentation.classNamed(typeName);
+			ClassDoc doc = context.classNamed(typeName);
 
 			// Check for circular references
-			if (paramStack.contains(typeName) && !isJavaType(typeName)) {
+			if (context.isOnStack(typeName) && !isJavaType(typeName)) {
+				context.recordCycleCut(typeName);
 				mappy.put(key, value.simpleTypeName());
 				continue;
 			}
 
-			if (field.constantValueExpression() != null) {
-				continue;
-			}
-
 			if (isJavaGenericClass(value)) {
-				mappy.putAll(handleGenericClass(key, value, parameterizedTypes));
-			} else if (isJavaType(typeName) || value.isPrimitive() || isEnum(value)) {
+				mappy.putAll(handleGenericClass(context, key, value, bound.getBindings()));
+			} else if (isJavaType(typeName) || value.isPrimitive() || isEnum(context, value)) {
 				// Other Java types, primitive and enumerations
 				mappy.put(key, value.simpleTypeName());
 			} else {
 				// Recurse by fields for non-Java types
-				paramStack.add(typeName);
-				Map mapType = generateJSONBody(value, parameterizedTypes);
+				context.pushType(typeName);
+				Map<String, Object> mapType = generateJSONBody(context, value, bound.getBindings());
 				if (mapType.size() <=0) {
 					mappy.put(key, "Object");
 				} else {
 					mappy.put(key, mapType);
 				}
-				paramStack.remove(paramStack.size() - 1);
+				context.popType();
 			}
 		}
 		return mappy;
@@ -877,48 +1602,46 @@ public class Generator {
 
 	// Generate example response
 	// Handles Primitives, Maps, Lists
-	private static String generateExample(Type type, Map<String, Type> parameterizedTypes) throws Exception {
+	// The example is written as indented JSON straight from the example model
+	private static String generateExample(final GenerationContext context, Type type,
+			TypeVariableResolver.Bindings bindings) throws Exception {
 		String typeName = type.qualifiedTypeName();
 		if (isJavaGenericClass(type)) {
-			Map mappy = handleGenericClass("key", type, parameterizedTypes);
-			return new ObjectMapper().writeValueAsString(mappy.get("key"));
+			Map<String, Object> mappy = handleGenericClass(context, "key", type, bindings);
+			return JsonSerialization.toIndentedJson(mappy.get("key"));
 		} else if (type.dimension().length() > 0) {
 			if (isJavaType(typeName) || type.isPrimitive()) {
-				return new ObjectMapper().writeValueAsString(new String[]{type.simpleTypeName()});
+				return JsonSerialization.toIndentedJson(new String[]{type.simpleTypeName()});
 			} else {
-				List<Map> list = new ArrayList<>();
-				paramStack.add(typeName);
-				list.add(generateJSONBody(type, parameterizedTypes));
-				paramStack.clear();
-				return new ObjectMapper().writeValueAsString(list);
+				List<Map<String, Object>> list = new ArrayList<>();
+				context.pushType(typeName);
+				list.add(generateJSONBody(context, type, bindings));
+				context.clearStack();
+				return JsonSerialization.toIndentedJson(list);
 			}
 		} else if (isJavaType(typeName) || type.isPrimitive()) {
-			return new ObjectMapper().writeValueAsString(type.simpleTypeName());
+			return JsonSerialization.toIndentedJson(type.simpleTypeName());
 		} else {
-			paramStack.add(typeName);
-			Map mappy = generateJSONBody(type, parameterizedTypes);
-			paramStack.clear();
-			return new ObjectMapper().writeValueAsString(mappy);
+			context.pushType(typeName);
+			Map<String, Object> mappy = generateJSONBody(context, type, bindings);
+			context.clearStack();
+			return JsonSerialization.toIndentedJson(mappy);
 		}
 	}
 
-	private static String generateRequestExmple(final DocHttpMethod httpMethod, Map<String, Type> parameterizedTypes) {
+	private static String generateRequestExmple(final GenerationContext context, final MethodDoc methodDoc,
+			final DocHttpMethod httpMethod, final TypeVariableResolver.Bindings bindings) {
 
-		List<DocParameter> params = httpMethod.getParams();
-		Type type = null;
-		for (DocParameter docParameter : params) {
-			if (requestBodyParamFilter.filter(httpMethod, docParameter)) {
-				type = docParameter.getType();
-				break;
-			}
-		}
-		if (type == null) {
+		DocParameter requestBodyParam = getRequestBodyParam(context, httpMethod);
+		if (requestBodyParam == null) {
 			return REQUEST_HAS_NO_BODY_MSG;
 		}
+		Type type = requestBodyParam.getType();
 		String generateExample = null;
+		GenerationMetrics.Span span = context.getMetrics().start();
 		try {
-			generateExample = generateExample(type, parameterizedTypes);
-			generateExample = Utils.getIndentJson(generateExample);
+			generateExample = generateExample(context, type,
+					getParameterBindings(context, methodDoc, requestBodyParam, bindings));
 		} catch (Exception e) {
 			logger.warning("Could not generate request example for method: " + httpMethod.getMethodSignatureName()
 					+ " with the request parameter type " + type.qualifiedTypeName()
@@ -928,11 +1651,26 @@ public class Generator {
 					+ "Parameter type: " + type.qualifiedTypeName() + "."
 					+ LINE_SEPARATOR
 					+ "The exception caught was " + e;
+		} finally {
+			context.getMetrics().recordExample(type.toString(), span);
 		}
 		return generateExample;
 	}
 
-	private static String generateResponseExample(final DocHttpMethod httpMethod, Map<String, Type> parameterizedTypes) {
+	// The type of a parameter is resolved with the bindings of the argument its type variable is bound to,
+	// the type of a sub-parameter with the bindings of the method.
+	private static TypeVariableResolver.Bindings getParameterBindings(final GenerationContext context,
+			final MethodDoc methodDoc, final DocParameter docParameter, final TypeVariableResolver.Bindings bindings) {
+		for (Parameter parameter : methodDoc.parameters()) {
+			if (parameter.name().equals(docParameter.getName())) {
+				return context.getTypeResolver().resolve(parameter.type(), bindings).getBindings();
+			}
+		}
+		return bindings;
+	}
+
+	private static String generateResponseExample(final GenerationContext context, final DocHttpMethod httpMethod,
+			final TypeVariableResolver.Bindings bindings) {
 		Type returnType = httpMethod.getReturnDetails().getReturnType();
 		String typeName = returnType.qualifiedTypeName();
 
@@ -948,9 +1686,9 @@ public class Generator {
 		}
 
 		String generateExample = null;
+		GenerationMetrics.Span span = context.getMetrics().start();
 		try {
-			generateExample = generateExample(returnType, parameterizedTypes);
-			generateExample = Utils.getIndentJson(generateExample);
+			generateExample = generateExample(context, returnType, bindings);
 		} catch (Exception e) {
 			logger.warning("Could not generate response example for method: " + httpMethod.getMethodSignatureName()
 					+ " with the return value type [" + typeName + "]. Exception was: " + e);
@@ -959,6 +1697,8 @@ public class Generator {
 					+ "Return value type: " + typeName + "."
 					+ LINE_SEPARATOR
 					+ "The exception caught was " + e;
+		} finally {
+			context.getMetrics().recordExample(returnType.toString(), span);
 		}
 
 		return generateExample;
@@ -968,16 +1708,15 @@ public class Generator {
 
 
 	// Generate sub-parameters for the parameters table
-	private static List<DocParameter> generateSubParameters (Type type,
+	// The type is already resolved, its type arguments are resolved with the given bindings
+	private static List<DocParameter> generateSubParameters(final GenerationContext context, Type type,
 															   String name,
-															   List<DocAnnotation> annotations,
-															   Map<String, Type> parameterizedTypes,
+															   DocAnnotations annotations,
+															   TypeVariableResolver.Bindings bindings,
 															   FieldDoc fieldInfo) {
-		type = findParameterizedType(type, parameterizedTypes);
 		String typeName = type.qualifiedTypeName();
 		DocParameter docParameter = new DocParameter(name, type);
-		Boolean required = false;
-		ClassDoc doc = documentation.classNamed(typeName);
+		ClassDoc doc = context.classNamed(typeName);
 		List<DocParameter> paramsList = new LinkedList<DocParameter>();
 
 		// Set annotations from FieldDoc or ClassDoc
@@ -985,101 +1724,164 @@ public class Generator {
 		if (doc != null) {
 			ped = doc;
 			if (doc.isEnum()) {
-				includeEnums.add(doc);
+				context.getIncludeEnums().add(doc);
 			}
 		}
 		if (fieldInfo != null) {
 			ped = fieldInfo;
 		}
 
+		Boolean required = isRequired(ped);
 		if (ped != null) {
-			for (AnnotationDesc annotation : ped.annotations()) {
-				if (annotation.annotationType().name().equals("NotNull")) {
-					required = true;
-				}
-			}
 			docParameter.setDescription(ped.commentText());
 		}
 
-		for (DocAnnotation annotation : annotations) {
-			if (annotation.getName().equals(RestDocConstants.REQUEST_BODY_ANNOTATION)) {
-				annotation.addAttribute(RestDocConstants.REQUEST_PARAMS_REQUIRED, required);
-			}
+		DocAnnotation requestBody = annotations.getRequestBody();
+		if (requestBody != null) {
+			requestBody.addAttribute(RestDocConstants.REQUEST_PARAMS_REQUIRED, required);
 		}
 
 		docParameter.setAnnotations(annotations);
 		paramsList.add(docParameter);
 
 		// Check for circular references
-		if (paramStack.contains(typeName) && !isJavaType(typeName)) {
+		if (context.isOnStack(typeName) && !isJavaType(typeName)) {
+			context.recordCycleCut(typeName);
 			return paramsList;
-		} else {
-			paramStack.add(typeName);
 		}
 
+		context.pushType(typeName);
+		List<TypeSchemaCache.FieldNode> fieldTree = getFieldTree(context, type, bindings);
+		context.popType();
+
+		for (TypeSchemaCache.FieldNode fieldNode : fieldTree) {
+			paramsList.add(fieldNode.toDocParameter(name, annotations));
+		}
+		return paramsList;
+	}
+
+	static boolean isRequired(final ProgramElementDoc ped) {
+		if (ped != null) {
+			for (AnnotationDesc annotation : ped.annotations()) {
+				if (annotation.annotationType().name().equals("NotNull")) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	// Returns the sub-parameters of an already resolved type, relative to the type.
+	// The type is expected to be on top of the stack, a tree that does not depend on
+	// the types below it is cached, and reused where the same types are not being traversed.
+	private static List<TypeSchemaCache.FieldNode> getFieldTree(final GenerationContext context, Type type,
+																TypeVariableResolver.Bindings bindings) {
+		TypeSchemaCache cache = context.getSchemaCache();
+		String cacheKey = context.getTypeResolver().key(type, bindings);
+		TypeSchemaCache.Entry<List<TypeSchemaCache.FieldNode>> cached = cache.getFieldTree(cacheKey);
+		if (cached != null && context.reuse(cached)) {
+			return cached.getSchema();
+		}
+		GenerationContext.Traversal outer = context.beginTraversal();
+		List<TypeSchemaCache.FieldNode> fieldTree =
+				Collections.unmodifiableList(buildFieldTree(context, type, bindings));
+		TypeSchemaCache.Entry<List<TypeSchemaCache.FieldNode>> entry = context.endTraversal(outer, fieldTree);
+		if (entry != null) {
+			cache.putFieldTree(cacheKey, entry);
+		}
+		return fieldTree;
+	}
+
+	private static List<TypeSchemaCache.FieldNode> buildFieldTree(final GenerationContext context, Type type,
+																  TypeVariableResolver.Bindings bindings) {
+		String typeName = type.qualifiedTypeName();
+		List<TypeSchemaCache.FieldNode> fieldTree = new ArrayList<>();
+		TypeVariableResolver resolver = context.getTypeResolver();
+
 		// If Map, Set or List, recurse by element/value
-		Type element = null;
+		TypeVariableResolver.BoundType element = null;
 		if (typeName.equals("java.util.Map")) {
 			Type[] args = type.asParameterizedType().typeArguments();
 			if (args.length == 2) {
-				element = args[1];
-				if (documentation.classNamed(element.qualifiedTypeName()) == null) {
-					element = parameterizedTypes.get(element.simpleTypeName());
-				}
+				element = resolver.resolve(args[1], bindings);
 			}
 		} else if (typeName.equals("java.util.List") || typeName.equals("java.util.Set")) {
 			Type[] args = type.asParameterizedType().typeArguments();
 			if (args.length == 1) {
-				element = args[0];
-				if (documentation.classNamed(element.qualifiedTypeName()) == null) {
-					element = parameterizedTypes.get(element.simpleTypeName());
-				}
+				element = resolver.resolve(args[0], bindings);
 			}
 		}
 
 		if (type.dimension().length() > 0) {
-			element = type;
+			element = resolver.resolve(type, bindings);
 		}
 
 		// Recurse by element
-		if (element != null && (!isJavaType(element) || isJavaGenericClass(element)) && !element.isPrimitive()) {
-			List<DocParameter> list = generateSubParameters(element, name, annotations, parameterizedTypes, null);
-			list.remove(0);
-			paramsList.addAll(list);
+		if (element != null && (!isJavaType(element.getType()) || isJavaGenericClass(element.getType()))
+				&& !element.getType().isPrimitive()) {
+			// The element shares the name of the parameter, so only its sub-parameters are added
+			fieldTree.addAll(getSubFieldTree(context, element.getType(), element.getBindings()));
 		} else if (!isJavaType(typeName) && !type.isPrimitive()) {
 			// Recurse by fields for non-Java types
-			for (FieldDoc field : getFields(typeName)) {
-				if (field.constantValueExpression() != null) {
-					continue;
-				}
-				String fieldName = field.name();
-				if (name.length() > 0) {
-					fieldName = name + "." + fieldName;
+			TypeVariableResolver.Bindings fieldBindings = resolver.bindingsOf(type, bindings);
+			for (FieldDoc field : getFields(context, typeName)) {
+				Type fieldType = resolver.resolve(field.type(), fieldBindings).getType();
+				fieldTree.add(new TypeSchemaCache.FieldNode(field.name(), fieldType, field, isRequired(field)));
+				for (TypeSchemaCache.FieldNode fieldNode : getSubFieldTree(context, field.type(), fieldBindings)) {
+					fieldTree.add(fieldNode.under(field.name()));
 				}
-				paramsList.addAll(generateSubParameters(field.type(), fieldName, annotations, parameterizedTypes, field));
 			}
 		}
-		paramStack.remove(paramStack.size() - 1);
-		return paramsList;
+		return fieldTree;
 	}
 
-	private static List<DocParameter> generateParameters(final MethodDoc methodDoc, Map<String, Type> parameterizedTypes) {
+	// Returns the sub-parameters of a nested, not yet resolved, type
+	private static List<TypeSchemaCache.FieldNode> getSubFieldTree(final GenerationContext context, Type type,
+																   TypeVariableResolver.Bindings bindings) {
+		TypeVariableResolver.BoundType bound = context.getTypeResolver().resolve(type, bindings);
+		type = bound.getType();
+		String typeName = type.qualifiedTypeName();
+		ClassDoc doc = context.classNamed(typeName);
+		if (doc != null && doc.isEnum()) {
+			context.getIncludeEnums().add(doc);
+		}
+
+		// Check for circular references
+		if (context.isOnStack(typeName) && !isJavaType(typeName)) {
+			context.recordCycleCut(typeName);
+			return Collections.emptyList();
+		}
+
+		context.pushType(typeName);
+		if (context.isDepthExceeded()) {
+			// The sub-parameters beyond the maximal depth are left out
+			context.recordDepthCut();
+			context.popType();
+			return Collections.emptyList();
+		}
+		List<TypeSchemaCache.FieldNode> fieldTree = getFieldTree(context, type, bound.getBindings());
+		context.popType();
+		return fieldTree;
+	}
+
+	private static List<DocParameter> generateParameters(final GenerationContext context, final MethodDoc methodDoc,
+			final TypeVariableResolver.Bindings bindings) {
 		List<DocParameter> paramsList = new LinkedList<DocParameter>();
 
 		for (Parameter parameter : methodDoc.parameters()) {
 			String name = parameter.name();
-			Type paramType = findParameterizedType(parameter.type(), parameterizedTypes);
+			TypeVariableResolver.BoundType boundType = context.getTypeResolver().resolve(parameter.type(), bindings);
+			Type paramType = boundType.getType();
 			String paramStr = paramType.qualifiedTypeName();
 			if (paramStr.contains("HttpServletResponse")) {
 				continue;
 			}
 
 			DocParameter docParameter = new DocParameter(name, paramType);
-			List<DocAnnotation> annotations = generateAnnotations(parameter.annotations());
-			for (DocAnnotation annotation : annotations) {
-				if (annotation.getName().equals(RestDocConstants.REQUEST_BODY_ANNOTATION)) {
-					annotation.addAttribute(RestDocConstants.REQUEST_PARAMS_REQUIRED, true);
-				}
+			DocAnnotations annotations = generateAnnotations(parameter.annotations());
+			DocAnnotation requestBody = annotations.getRequestBody();
+			if (requestBody != null) {
+				requestBody.addAttribute(RestDocConstants.REQUEST_PARAMS_REQUIRED, true);
 			}
 			docParameter.setAnnotations(annotations);
 			Map<String, String> paramTagsComments = Utils.getParamTagsComments(methodDoc);
@@ -1092,84 +1894,60 @@ public class Generator {
 			paramsList.add(docParameter);
 
 			if (!isJavaType(paramStr) || isJavaGenericClass(paramStr)) {
-				List<DocParameter> list = generateSubParameters(paramType,
+				List<DocParameter> list = generateSubParameters(context, paramType,
 						name,
 						annotations,
-						parameterizedTypes,
+						boundType.getBindings(),
 						null);
 				list.remove(0);
 				paramsList.addAll(list);
 			}
-			paramStack.clear();
+			context.clearStack();
 		}
 		return paramsList;
 	}
 
-	private static DocReturnDetails generateReturnDetails(final MethodDoc methodDoc, Map<String, Type> parameterizedTypes) {
+	// Returns the type of the response body: the type argument of a ResponseEntity, the return type otherwise.
+	// Returns null for a ResponseEntity that does not have a single type argument.
+	private static TypeVariableResolver.BoundType getResponseBodyType(final GenerationContext context,
+			final MethodDoc methodDoc, final TypeVariableResolver.Bindings bindings) {
 		Type returnType = methodDoc.returnType();
-		String name = returnType.qualifiedTypeName();
-
 		ParameterizedType pt = returnType.asParameterizedType();
-		if (name.contains("HttpStatus")) {
-			return new DocReturnDetails(returnType);
-		}
-		if (pt != null) {
+		if (pt != null && returnType.qualifiedTypeName().contains("ResponseEntity")) {
 			Type[] params = pt.typeArguments();
-			if (name.contains("ResponseEntity")) {
-				if (params.length == 1) {
-					returnType = documentation.classNamed(params[0].qualifiedTypeName());
-				} else {
-					return new DocReturnDetails(returnType);
-				}
+			if (params.length != 1) {
+				return null;
 			}
-			ClassDoc doc = documentation.classNamed(name);
-			if (doc != null) {
-
-				TypeVariable[] vars = doc.typeParameters();
-				int index = 0;
-
-				for (TypeVariable var : vars) {
-					Type t = params[index];
-					String key = var.simpleTypeName();
-					pt = doc.asParameterizedType();
-
-					while (pt != null) {
-						Type[] args = pt.typeArguments();
-						doc = documentation.classNamed(args[0].qualifiedTypeName());
-						if (doc != null) {
-							pt = doc.asParameterizedType();
-						} else {
-							pt = null;
-						}
-					}
+			returnType = params[0];
+		}
+		return context.getTypeResolver().resolve(returnType, bindings);
+	}
 
-					parameterizedTypes.put(key, params[index]);
-					if (documentation.classNamed(t.qualifiedTypeName()) != null) {
-						parameterizedTypes.put(key, t);
-					} else {
-						parameterizedTypes.put(key, parameterizedTypes.get(t.simpleTypeName()));
-					}
-					index++;
-				}
-			}
+	private static DocReturnDetails generateReturnDetails(final GenerationContext context, final MethodDoc methodDoc,
+			final TypeVariableResolver.BoundType responseBodyType) {
+		Type returnType = methodDoc.returnType();
+		String name = returnType.qualifiedTypeName();
+
+		if (name.contains("HttpStatus") || responseBodyType == null) {
+			return new DocReturnDetails(returnType);
 		}
 
-		returnType = findParameterizedType(returnType, parameterizedTypes);
+		returnType = responseBodyType.getType();
 		DocReturnDetails returnDetails = new DocReturnDetails(returnType);
 		Tag[] returnTags = methodDoc.tags("return");
 		if (returnTags.length > 0) {
 			returnDetails.setDescription(returnTags[0].text());
 		}
 		if (!isJavaType(returnType) || isJavaGenericClass(returnType)) {
-			List<DocParameter> paramsList = generateSubParameters(returnType,
+			List<DocParameter> paramsList = generateSubParameters(context, returnType,
 					"",
-					new LinkedList<DocAnnotation>(),
-					parameterizedTypes,
+					new DocAnnotations(),
+					responseBodyType.getBindings(),
 					null);
 			paramsList.remove(0);
 			returnDetails.setParamsList(paramsList);
 		}
-		paramStack.clear();
+		context.clearStack();
 
 		return returnDetails;
 	}
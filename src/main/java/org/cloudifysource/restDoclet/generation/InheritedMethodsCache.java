@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.cloudifysource.restDoclet.docElements.DocAnnotations;
+import org.cloudifysource.restDoclet.docElements.DocMethod;
+
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.Type;
+
+/**
+ * Caches, for a single run, the methods that controllers inherit from their base classes. <br />
+ * Two kinds of entries are kept:
+ * <ul>
+ * <li>The mapped methods of a base class - its methods that have a RequestMapping annotation,
+ * with their annotations, HTTP methods and URIs. These do not depend on the type arguments of the base class
+ * and are keyed by the qualified name of the base class.</li>
+ * <li>The generated methods of a base class - keyed by the base class and its resolved type arguments
+ * (see {@link TypeVariableResolver#key(Type, TypeVariableResolver.Bindings)}).
+ * Subclasses with other type arguments generate the methods again from the mapped methods,
+ * the schemas of the types they share are taken from the {@link TypeSchemaCache}.</li>
+ * </ul>
+ * The cached methods are shared by the controllers and must not be modified.
+ *
+ * @since 0.5.3
+ */
+final class InheritedMethodsCache {
+	private final ConcurrentMap<String, List<MappedMethod>> mappedMethods = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Methods> methods = new ConcurrentHashMap<>();
+
+	List<MappedMethod> getMappedMethods(final String className) {
+		return mappedMethods.get(className);
+	}
+
+	/**
+	 *
+	 * @param className .
+	 * @param classMethods .
+	 * @return The cached mapped methods, those of another thread if it cached the class first.
+	 */
+	List<MappedMethod> putMappedMethods(final String className, final List<MappedMethod> classMethods) {
+		List<MappedMethod> unmodifiable = Collections.unmodifiableList(classMethods);
+		List<MappedMethod> existing = mappedMethods.putIfAbsent(className, unmodifiable);
+		return existing == null ? unmodifiable : existing;
+	}
+
+	Methods getMethods(final String key) {
+		return methods.get(key);
+	}
+
+	/**
+	 *
+	 * @param key .
+	 * @param generated .
+	 * @return The cached methods, those of another thread if it cached the key first.
+	 */
+	Methods putMethods(final String key, final Methods generated) {
+		Methods existing = methods.putIfAbsent(key, generated);
+		return existing == null ? generated : existing;
+	}
+
+	/**
+	 * A method that has a RequestMapping annotation.
+	 */
+	static final class MappedMethod {
+		private final MethodDoc methodDoc;
+		private final DocAnnotations annotations;
+		private final String[] httpMethods;
+		private final String[] uris;
+
+		MappedMethod(final MethodDoc methodDoc, final DocAnnotations annotations,
+					 final String[] httpMethods, final String[] uris) {
+			this.methodDoc = methodDoc;
+			this.annotations = annotations;
+			this.httpMethods = httpMethods;
+			this.uris = uris;
+		}
+
+		MethodDoc getMethodDoc() {
+			return methodDoc;
+		}
+
+		DocAnnotations getAnnotations() {
+			return annotations;
+		}
+
+		String[] getHttpMethods() {
+			return httpMethods;
+		}
+
+		String[] getUris() {
+			return uris;
+		}
+	}
+
+	/**
+	 * The methods generated for a base class.
+	 */
+	static final class Methods {
+		private final SortedMap<String, DocMethod> docMethods;
+
+		Methods(final SortedMap<String, DocMethod> docMethods) {
+			this.docMethods = docMethods;
+		}
+
+		SortedMap<String, DocMethod> getMethods() {
+			return docMethods;
+		}
+	}
+}
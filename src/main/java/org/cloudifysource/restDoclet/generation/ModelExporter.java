@@ -0,0 +1,221 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+
+import org.cloudifysource.restDoclet.docElements.DocController;
+import org.cloudifysource.restDoclet.docElements.DocHttpMethod;
+import org.cloudifysource.restDoclet.docElements.DocMethod;
+import org.cloudifysource.restDoclet.docElements.DocParameter;
+import org.cloudifysource.restDoclet.docElements.DocPossibleResponseStatusAnnotation;
+import org.cloudifysource.restDoclet.docElements.DocReturnDetails;
+import org.cloudifysource.restDoclet.exampleGenerators.JsonSerialization;
+import org.codehaus.jackson.JsonGenerator;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.FieldDoc;
+import com.sun.javadoc.ParameterizedType;
+import com.sun.javadoc.Type;
+
+/**
+ * Writes the documentation model (controllers, methods, HTTP methods and parameters) in a machine-readable form,
+ * so tools can consume the documentation without parsing the HTML. <br />
+ * The model is streamed straight into the file, in one of two formats:
+ * <ul>
+ * <li>JSON - a single compact document holding the version, the controllers and the documented enums.</li>
+ * <li>NDJSON - an object per line for each endpoint (an HTTP method of a URI), along with its controller.
+ * The enums are not written in this format.</li>
+ * </ul>
+ *
+ * @since 0.5.3
+ */
+final class ModelExporter {
+	private ModelExporter() {
+	}
+
+	/**
+	 *
+	 * @param file The destination file.
+	 * @param isNdjson true to write an endpoint per line, false to write a single JSON document.
+	 * @param version The REST version.
+	 * @param controllers .
+	 * @param enums The enums the controllers refer to.
+	 * @throws IOException .
+	 */
+	static void write(final File file, final boolean isNdjson, final String version,
+					  final List<DocController> controllers, final Collection<ClassDoc> enums) throws IOException {
+		File parentFile = file.getAbsoluteFile().getParentFile();
+		if (parentFile != null) {
+			parentFile.mkdirs();
+		}
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			if (isNdjson) {
+				writeEndpoints(writer, controllers);
+			} else {
+				writeDocument(writer, version, controllers, enums);
+			}
+		}
+	}
+
+	private static void writeDocument(final Writer writer, final String version,
+									  final List<DocController> controllers, final Collection<ClassDoc> enums)
+			throws IOException {
+		JsonGenerator gen = JsonSerialization.createGenerator(writer);
+		gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		gen.writeStartObject();
+		gen.writeStringField("version", version);
+		gen.writeArrayFieldStart("controllers");
+		for (DocController controller : controllers) {
+			gen.writeStartObject();
+			gen.writeStringField("name", controller.getName());
+			gen.writeStringField("uri", controller.getUri());
+			gen.writeStringField("description", controller.getDescription());
+			gen.writeArrayFieldStart("methods");
+			for (DocMethod docMethod : controller.getMethods().values()) {
+				gen.writeStartObject();
+				gen.writeStringField("uri", docMethod.getUri());
+				gen.writeStringField("description", docMethod.getDescription());
+				gen.writeArrayFieldStart("httpMethods");
+				for (DocHttpMethod httpMethod : docMethod.getHttpMethods()) {
+					gen.writeStartObject();
+					writeHttpMethodFields(gen, httpMethod);
+					gen.writeEndObject();
+				}
+				gen.writeEndArray();
+				gen.writeEndObject();
+			}
+			gen.writeEndArray();
+			gen.writeEndObject();
+		}
+		gen.writeEndArray();
+		gen.writeArrayFieldStart("enums");
+		if (enums != null) {
+			for (ClassDoc enumDoc : enums) {
+				gen.writeStartObject();
+				gen.writeStringField("name", enumDoc.qualifiedTypeName());
+				gen.writeStringField("description", enumDoc.commentText());
+				gen.writeArrayFieldStart("values");
+				for (FieldDoc constant : enumDoc.enumConstants()) {
+					gen.writeString(constant.name());
+				}
+				gen.writeEndArray();
+				gen.writeEndObject();
+			}
+		}
+		gen.writeEndArray();
+		gen.writeEndObject();
+		gen.close();
+	}
+
+	// Each line is written by its own generator, so the lines are not separated by the generator's root separator
+	private static void writeEndpoints(final Writer writer, final List<DocController> controllers)
+			throws IOException {
+		for (DocController controller : controllers) {
+			for (DocMethod docMethod : controller.getMethods().values()) {
+				for (DocHttpMethod httpMethod : docMethod.getHttpMethods()) {
+					JsonGenerator gen = JsonSerialization.createGenerator(writer);
+					gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+					gen.writeStartObject();
+					gen.writeStringField("controller", controller.getName());
+					gen.writeStringField("controllerUri", controller.getUri());
+					gen.writeStringField("uri", docMethod.getUri());
+					gen.writeStringField("path", controller.getUri() + docMethod.getUri());
+					writeHttpMethodFields(gen, httpMethod);
+					gen.writeEndObject();
+					gen.close();
+					writer.write('\n');
+				}
+			}
+		}
+	}
+
+	private static void writeHttpMethodFields(final JsonGenerator gen, final DocHttpMethod httpMethod)
+			throws IOException {
+		gen.writeStringField("httpMethod", httpMethod.getHttpMethodName());
+		gen.writeStringField("methodSignatureName", httpMethod.getMethodSignatureName());
+		gen.writeStringField("description", httpMethod.getDescription());
+		writeParameters(gen, "parameters", httpMethod.getParams());
+		DocReturnDetails returnDetails = httpMethod.getReturnDetails();
+		if (returnDetails != null) {
+			gen.writeObjectFieldStart("returns");
+			writeTypeField(gen, returnDetails.getReturnType());
+			gen.writeStringField("description", returnDetails.getDescription());
+			writeParameters(gen, "parameters", returnDetails.getParamsList());
+			gen.writeEndObject();
+		}
+		gen.writeArrayFieldStart("possibleResponseStatuses");
+		List<DocPossibleResponseStatusAnnotation> statuses = httpMethod.getPossibleResponseStatuses();
+		if (statuses != null) {
+			for (DocPossibleResponseStatusAnnotation status : statuses) {
+				gen.writeStartObject();
+				gen.writeNumberField("code", status.getCode());
+				gen.writeStringField("codeName", status.getCodeName());
+				gen.writeStringField("description", status.getDescription());
+				gen.writeEndObject();
+			}
+		}
+		gen.writeEndArray();
+		gen.writeStringField("requestExample", httpMethod.getRequestExample());
+		gen.writeStringField("responseExample", httpMethod.getResponseExample());
+	}
+
+	private static void writeParameters(final JsonGenerator gen, final String fieldName,
+										final List<DocParameter> params) throws IOException {
+		gen.writeArrayFieldStart(fieldName);
+		if (params != null) {
+			for (DocParameter param : params) {
+				gen.writeStartObject();
+				gen.writeStringField("name", param.getName());
+				writeTypeField(gen, param.getType());
+				gen.writeStringField("location", param.getLocation());
+				gen.writeBooleanField("required", param.isRequired());
+				gen.writeStringField("defaultValue", param.getDefaultValue());
+				gen.writeStringField("description", param.getDescription());
+				gen.writeEndObject();
+			}
+		}
+		gen.writeEndArray();
+	}
+
+	private static void writeTypeField(final JsonGenerator gen, final Type type) throws IOException {
+		gen.writeStringField("type", type == null ? null : typeName(type));
+	}
+
+	// The type is written with its type arguments, e.g. java.util.List<com.acme.Dto>
+	private static String typeName(final Type type) {
+		StringBuilder name = new StringBuilder(type.qualifiedTypeName());
+		ParameterizedType parameterizedType = type.asParameterizedType();
+		if (parameterizedType != null && parameterizedType.typeArguments().length > 0) {
+			name.append('<');
+			Type[] typeArguments = parameterizedType.typeArguments();
+			for (int i = 0; i < typeArguments.length; i++) {
+				if (i > 0) {
+					name.append(',');
+				}
+				name.append(typeName(typeArguments[i]));
+			}
+			name.append('>');
+		}
+		return name.append(type.dimension()).toString();
+	}
+}
@@ -0,0 +1,513 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.cloudifysource.restDoclet.constants.RestDocConstants.DocAnnotationTypes;
+import org.cloudifysource.restDoclet.docElements.DocAnnotation;
+import org.cloudifysource.restDoclet.docElements.DocController;
+import org.cloudifysource.restDoclet.docElements.DocHttpMethod;
+import org.cloudifysource.restDoclet.docElements.DocMethod;
+import org.cloudifysource.restDoclet.docElements.DocParameter;
+import org.cloudifysource.restDoclet.docElements.DocPossibleResponseStatusAnnotation;
+import org.cloudifysource.restDoclet.docElements.DocReturnDetails;
+import org.cloudifysource.restDoclet.exampleGenerators.JsonSerialization;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.FieldDoc;
+import com.sun.javadoc.ParameterizedType;
+import com.sun.javadoc.Type;
+import com.sun.javadoc.TypeVariable;
+
+/**
+ * Writes the documented controllers as an OpenAPI 3 document, in JSON or YAML. <br />
+ * The document is built from the controllers that were already generated for the HTML documentation,
+ * only the DTO schemas are computed here, from the fields of the DTO classes.
+ * Each DTO (each parameterization of a generic DTO) and each enum is written once to the
+ * components of the document and referred to from the operations and the other schemas,
+ * so cyclic DTOs need no special handling. <br />
+ * The sub-parameters of the model are not written, they are covered by the schemas.
+ * A writer is used for a single document.
+ *
+ * @since 0.5.3
+ */
+final class OpenApiWriter {
+	private static final String OPEN_API_VERSION = "3.0.3";
+	private static final String TITLE = "REST API";
+	private static final String JSON_CONTENT_TYPE = "application/json";
+	private static final String SCHEMAS_REF = "#/components/schemas/";
+
+	private final GenerationContext context;
+	// The component name of each DTO, keyed by its qualified name and resolved type arguments
+	private final Map<String, String> componentNames = new HashMap<>();
+	private final Map<String, Object> schemas = new TreeMap<>();
+	private final Set<String> operationIds = new HashSet<>();
+
+	/**
+	 *
+	 * @param context The context the controllers were generated with.
+	 */
+	OpenApiWriter(final GenerationContext context) {
+		this.context = context;
+	}
+
+	/**
+	 *
+	 * @param file The destination file.
+	 * @param isYaml true to write YAML, false to write compact JSON.
+	 * @param version The REST version.
+	 * @param controllers .
+	 * @throws IOException .
+	 */
+	void write(final File file, final boolean isYaml, final String version,
+			   final List<DocController> controllers) throws IOException {
+		Map<String, Object> document = createDocument(version, controllers);
+		File parentFile = file.getAbsoluteFile().getParentFile();
+		if (parentFile != null) {
+			parentFile.mkdirs();
+		}
+		try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+			if (isYaml) {
+				new YamlWriter(writer).write(document);
+			} else {
+				JsonSerialization.write(writer, document);
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param version The REST version.
+	 * @param controllers .
+	 * @return The document as a tree of maps and lists.
+	 */
+	Map<String, Object> createDocument(final String version, final List<DocController> controllers) {
+		Map<String, Object> info = new LinkedHashMap<>();
+		info.put("title", TITLE);
+		info.put("version", version);
+
+		Map<String, Object> paths = new TreeMap<>();
+		List<Object> tags = new ArrayList<>();
+		for (DocController controller : controllers) {
+			Map<String, Object> tag = new LinkedHashMap<>();
+			tag.put("name", controller.getName());
+			if (!StringUtils.isBlank(controller.getDescription())) {
+				tag.put("description", controller.getDescription());
+			}
+			tags.add(tag);
+			for (DocMethod docMethod : controller.getMethods().values()) {
+				String path = toPath(controller.getUri() + docMethod.getUri());
+				@SuppressWarnings("unchecked")
+				Map<String, Object> pathItem = (Map<String, Object>) paths.get(path);
+				if (pathItem == null) {
+					pathItem = new LinkedHashMap<>();
+					paths.put(path, pathItem);
+				}
+				for (DocHttpMethod httpMethod : docMethod.getHttpMethods()) {
+					pathItem.put(httpMethod.getHttpMethodName().toLowerCase(),
+							createOperation(controller, httpMethod));
+				}
+			}
+		}
+
+		Map<String, Object> document = new LinkedHashMap<>();
+		document.put("openapi", OPEN_API_VERSION);
+		document.put("info", info);
+		document.put("tags", tags);
+		document.put("paths", paths);
+		Map<String, Object> components = new LinkedHashMap<>();
+		components.put("schemas", schemas);
+		document.put("components", components);
+		return document;
+	}
+
+	// Spring allows a path without a leading slash and regular expressions in the path variables
+	private static String toPath(final String uri) {
+		String path = uri.replaceAll("\\{([^}:]+):[^}]*\\}", "{$1}");
+		return path.startsWith("/") ? path : "/" + path;
+	}
+
+	private Map<String, Object> createOperation(final DocController controller, final DocHttpMethod httpMethod) {
+		Map<String, Object> operation = new LinkedHashMap<>();
+		List<Object> tags = new ArrayList<>();
+		tags.add(controller.getName());
+		operation.put("tags", tags);
+		operation.put("operationId", getOperationId(httpMethod.getMethodSignatureName()));
+		if (!StringUtils.isBlank(httpMethod.getDescription())) {
+			operation.put("description", httpMethod.getDescription());
+		}
+
+		List<Object> parameters = new ArrayList<>();
+		if (httpMethod.getParams() != null) {
+			for (DocParameter param : httpMethod.getParams()) {
+				if (param.getName().indexOf('.') >= 0) {
+					// A sub-parameter, covered by the schema of its parameter
+					continue;
+				}
+				if (param.getRequestBodyAnnotation() != null) {
+					operation.put("requestBody", createRequestBody(param));
+					continue;
+				}
+				Map<String, Object> parameter = createParameter(param);
+				if (parameter != null) {
+					parameters.add(parameter);
+				}
+			}
+		}
+		if (!parameters.isEmpty()) {
+			operation.put("parameters", parameters);
+		}
+		operation.put("responses", createResponses(httpMethod));
+		return operation;
+	}
+
+	private String getOperationId(final String methodName) {
+		String operationId = methodName;
+		for (int i = 1; !operationIds.add(operationId); i++) {
+			operationId = methodName + "_" + i;
+		}
+		return operationId;
+	}
+
+	private Map<String, Object> createRequestBody(final DocParameter param) {
+		Map<String, Object> requestBody = new LinkedHashMap<>();
+		if (!StringUtils.isBlank(param.getDescription())) {
+			requestBody.put("description", param.getDescription());
+		}
+		requestBody.put("required", Boolean.TRUE.equals(param.isRequired()));
+		requestBody.put("content", createContent(param.getType()));
+		return requestBody;
+	}
+
+	// Only path variables and request parameters are written, the other method parameters are not part of the request
+	private Map<String, Object> createParameter(final DocParameter param) {
+		String location;
+		String name = param.getName();
+		boolean isRequired;
+		DocAnnotation pathVariable = getAnnotation(param, DocAnnotationTypes.PATH_VARIABLE);
+		if (pathVariable != null) {
+			location = "path";
+			isRequired = true;
+			Object value = pathVariable.getAttribute("value");
+			if (value instanceof String && !((String) value).isEmpty()) {
+				name = (String) value;
+			}
+		} else if (param.getRequestParamAnnotation() != null) {
+			location = "query";
+			isRequired = Boolean.TRUE.equals(param.isRequired());
+			String value = param.getRequestParamAnnotation().getValue();
+			if (!StringUtils.isBlank(value)) {
+				name = value;
+			}
+		} else {
+			return null;
+		}
+		Map<String, Object> parameter = new LinkedHashMap<>();
+		parameter.put("name", name);
+		parameter.put("in", location);
+		if (!StringUtils.isBlank(param.getDescription())) {
+			parameter.put("description", param.getDescription());
+		}
+		parameter.put("required", isRequired);
+		Map<String, Object> schema = getSchema(param.getType(), TypeVariableResolver.Bindings.EMPTY);
+		if (param.getDefaultValue() != null && !schema.containsKey("$ref")) {
+			schema = new LinkedHashMap<>(schema);
+			schema.put("default", param.getDefaultValue());
+		}
+		parameter.put("schema", schema);
+		return parameter;
+	}
+
+	private static DocAnnotation getAnnotation(final DocParameter param, final DocAnnotationTypes type) {
+		if (param.getAnnotations() != null) {
+			for (DocAnnotation annotation : param.getAnnotations()) {
+				if (annotation.getType() == type) {
+					return annotation;
+				}
+			}
+		}
+		return null;
+	}
+
+	private Map<String, Object> createResponses(final DocHttpMethod httpMethod) {
+		Map<String, Object> responses = new TreeMap<>();
+		DocReturnDetails returnDetails = httpMethod.getReturnDetails();
+		Map<String, Object> success = new LinkedHashMap<>();
+		success.put("description", returnDetails == null || StringUtils.isBlank(returnDetails.getDescription())
+				? "OK" : returnDetails.getDescription());
+		if (returnDetails != null && hasBody(returnDetails.getReturnType())) {
+			success.put("content", createContent(returnDetails.getReturnType()));
+		}
+		responses.put("200", success);
+
+		List<DocPossibleResponseStatusAnnotation> statuses = httpMethod.getPossibleResponseStatuses();
+		if (statuses != null) {
+			for (DocPossibleResponseStatusAnnotation status : statuses) {
+				String code = String.valueOf(status.getCode());
+				String description = StringUtils.isBlank(status.getDescription())
+						? String.valueOf(status.getCodeName()) : status.getDescription();
+				if (responses.containsKey(code)) {
+					@SuppressWarnings("unchecked")
+					Map<String, Object> response = (Map<String, Object>) responses.get(code);
+					response.put("description", description);
+				} else {
+					Map<String, Object> response = new LinkedHashMap<>();
+					response.put("description", description);
+					responses.put(code, response);
+				}
+			}
+		}
+		return responses;
+	}
+
+	private static boolean hasBody(final Type type) {
+		if (type == null) {
+			return false;
+		}
+		String typeName = type.qualifiedTypeName();
+		return !"void".equals(typeName) && !typeName.endsWith("HttpStatus");
+	}
+
+	private Map<String, Object> createContent(final Type type) {
+		Map<String, Object> mediaType = new LinkedHashMap<>();
+		mediaType.put("schema", getSchema(type, TypeVariableResolver.Bindings.EMPTY));
+		Map<String, Object> content = new LinkedHashMap<>();
+		content.put(JSON_CONTENT_TYPE, mediaType);
+		return content;
+	}
+
+	/**
+	 *
+	 * @param type .
+	 * @param bindings The bindings of the type variables the type refers to.
+	 * @return The schema of the type, a reference for DTOs and enums.
+	 */
+	private Map<String, Object> getSchema(final Type type, final TypeVariableResolver.Bindings bindings) {
+		TypeVariableResolver.BoundType resolved = resolve(type, bindings);
+		if (resolved == null) {
+			return new LinkedHashMap<>();
+		}
+		Map<String, Object> schema = getElementSchema(resolved.getType(), resolved.getBindings());
+		String dimension = resolved.getType().dimension();
+		for (int i = 0; i < dimension.length() / 2; i++) {
+			Map<String, Object> array = new LinkedHashMap<>();
+			array.put("type", "array");
+			array.put("items", schema);
+			schema = array;
+		}
+		return schema;
+	}
+
+	// An unbound type variable resolves to null
+	private TypeVariableResolver.BoundType resolve(final Type type, final TypeVariableResolver.Bindings bindings) {
+		TypeVariableResolver.BoundType resolved = context.getTypeResolver().resolve(type, bindings);
+		return resolved.getType().asTypeVariable() == null ? resolved : null;
+	}
+
+	// The schema of the type, without its dimension
+	private Map<String, Object> getElementSchema(final Type type, final TypeVariableResolver.Bindings bindings) {
+		String typeName = type.qualifiedTypeName();
+		Map<String, Object> schema = getSimpleSchema(typeName);
+		if (schema != null) {
+			return schema;
+		}
+		schema = new LinkedHashMap<>();
+		Type[] typeArguments = getTypeArguments(type);
+		if ("java.util.List".equals(typeName) || "java.util.Set".equals(typeName)
+				|| "java.util.Collection".equals(typeName)) {
+			schema.put("type", "array");
+			schema.put("items", typeArguments.length == 1
+					? getSchema(typeArguments[0], bindings) : new LinkedHashMap<String, Object>());
+			if ("java.util.Set".equals(typeName)) {
+				schema.put("uniqueItems", true);
+			}
+			return schema;
+		}
+		if ("java.util.Map".equals(typeName)) {
+			schema.put("type", "object");
+			schema.put("additionalProperties", typeArguments.length == 2
+					? getSchema(typeArguments[1], bindings) : new LinkedHashMap<String, Object>());
+			return schema;
+		}
+		ClassDoc classDoc = context.classNamed(typeName);
+		if (classDoc == null || Generator.isJavaType(typeName)) {
+			schema.put("type", "object");
+			return schema;
+		}
+		schema.put("$ref", SCHEMAS_REF + getComponentName(type, classDoc, bindings));
+		return schema;
+	}
+
+	private static Type[] getTypeArguments(final Type type) {
+		ParameterizedType parameterizedType = type.asParameterizedType();
+		return parameterizedType == null ? new Type[0] : parameterizedType.typeArguments();
+	}
+
+	// The schemas of the primitives, their wrappers and the common value types of the JDK
+	private static Map<String, Object> getSimpleSchema(final String typeName) {
+		String type;
+		String format = null;
+		if ("boolean".equals(typeName) || "java.lang.Boolean".equals(typeName)) {
+			type = "boolean";
+		} else if ("int".equals(typeName) || "java.lang.Integer".equals(typeName)
+				|| "short".equals(typeName) || "java.lang.Short".equals(typeName)
+				|| "byte".equals(typeName) || "java.lang.Byte".equals(typeName)) {
+			type = "integer";
+			format = "int32";
+		} else if ("long".equals(typeName) || "java.lang.Long".equals(typeName)
+				|| "java.math.BigInteger".equals(typeName)) {
+			type = "integer";
+			format = "int64";
+		} else if ("float".equals(typeName) || "java.lang.Float".equals(typeName)) {
+			type = "number";
+			format = "float";
+		} else if ("double".equals(typeName) || "java.lang.Double".equals(typeName)) {
+			type = "number";
+			format = "double";
+		} else if ("java.math.BigDecimal".equals(typeName) || "java.lang.Number".equals(typeName)) {
+			type = "number";
+		} else if ("char".equals(typeName) || "java.lang.Character".equals(typeName)
+				|| "java.lang.String".equals(typeName)) {
+			type = "string";
+		} else if ("java.util.Date".equals(typeName) || "java.util.Calendar".equals(typeName)
+				|| typeName.startsWith("java.time.") && typeName.endsWith("DateTime")
+				|| "java.time.Instant".equals(typeName)) {
+			type = "string";
+			format = "date-time";
+		} else if ("java.time.LocalDate".equals(typeName) || "org.joda.time.LocalDate".equals(typeName)) {
+			type = "string";
+			format = "date";
+		} else if ("java.util.UUID".equals(typeName)) {
+			type = "string";
+			format = "uuid";
+		} else {
+			return null;
+		}
+		Map<String, Object> schema = new LinkedHashMap<>();
+		schema.put("type", type);
+		if (format != null) {
+			schema.put("format", format);
+		}
+		return schema;
+	}
+
+	/**
+	 * The schema of a DTO or an enum is added to the components the first time it is referred to.
+	 * The name is reserved before the fields are visited, so a DTO that refers to itself gets its own reference.
+	 *
+	 * @return The component name of the type.
+	 */
+	private String getComponentName(final Type type, final ClassDoc classDoc,
+			final TypeVariableResolver.Bindings bindings) {
+		TypeVariableResolver resolver = context.getTypeResolver();
+		StringBuilder key = new StringBuilder(classDoc.qualifiedTypeName());
+		StringBuilder name = new StringBuilder(classDoc.simpleTypeName());
+		TypeVariable[] typeParameters = classDoc.typeParameters();
+		Type[] typeArguments = getTypeArguments(type);
+		for (int i = 0; i < typeParameters.length; i++) {
+			TypeVariableResolver.BoundType argument = i < typeArguments.length
+					? resolve(typeArguments[i], bindings) : null;
+			String argumentName = argument == null ? "Object"
+					: argument.getType().simpleTypeName() + argument.getType().dimension();
+			key.append(i == 0 ? '<' : ',').append(argument == null ? "?"
+					: resolver.key(argument.getType(), argument.getBindings()));
+			name.append(i == 0 ? "Of" : "And").append(argumentName.replace("[]", "Array"));
+		}
+		if (typeParameters.length > 0) {
+			key.append('>');
+		}
+		String componentName = componentNames.get(key.toString());
+		if (componentName != null) {
+			return componentName;
+		}
+		componentName = name.toString();
+		if (schemas.containsKey(componentName)) {
+			// Another class with the same simple name
+			componentName = key.toString().replaceAll("[^A-Za-z0-9_.-]", "_");
+		}
+		componentNames.put(key.toString(), componentName);
+		schemas.put(componentName, new LinkedHashMap<String, Object>());
+		schemas.put(componentName, classDoc.isEnum() ? createEnumSchema(classDoc)
+				: createObjectSchema(classDoc, resolver.bindingsOf(type, bindings)));
+		return componentName;
+	}
+
+	private static Map<String, Object> createEnumSchema(final ClassDoc classDoc) {
+		Map<String, Object> schema = new LinkedHashMap<>();
+		schema.put("type", "string");
+		if (!StringUtils.isBlank(classDoc.commentText())) {
+			schema.put("description", classDoc.commentText());
+		}
+		List<Object> values = new ArrayList<>();
+		for (FieldDoc constant : classDoc.enumConstants()) {
+			values.add(constant.name());
+		}
+		schema.put("enum", values);
+		return schema;
+	}
+
+	private Map<String, Object> createObjectSchema(final ClassDoc classDoc, final TypeVariableResolver.Bindings bindings) {
+		Map<String, Object> schema = new LinkedHashMap<>();
+		schema.put("type", "object");
+		if (!StringUtils.isBlank(classDoc.commentText())) {
+			schema.put("description", classDoc.commentText());
+		}
+		Map<String, Object> properties = new LinkedHashMap<>();
+		List<Object> required = new ArrayList<>();
+		for (FieldDoc field : Generator.getFields(context, classDoc.qualifiedTypeName())) {
+			if (field.isStatic() || properties.containsKey(field.name())) {
+				continue;
+			}
+			Map<String, Object> property = getSchema(field.type(), bindings);
+			if (!StringUtils.isBlank(field.commentText())) {
+				// Siblings of a reference are ignored, so a described reference is wrapped
+				if (property.containsKey("$ref")) {
+					Map<String, Object> wrapper = new LinkedHashMap<>();
+					List<Object> allOf = new ArrayList<>();
+					allOf.add(property);
+					wrapper.put("allOf", allOf);
+					property = wrapper;
+				} else {
+					property = new LinkedHashMap<>(property);
+				}
+				property.put("description", field.commentText());
+			}
+			properties.put(field.name(), property);
+			if (Generator.isRequired(field)) {
+				required.add(field.name());
+			}
+		}
+		schema.put("properties", properties);
+		if (!required.isEmpty()) {
+			schema.put("required", required);
+		}
+		return schema;
+	}
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the publishing of the documentation in the background, while the run writes its local files. <br />
+ * The tasks run on daemon threads, so a task that does not complete does not keep the JVM alive.
+ * The run waits for all the tasks once its files are written, up to a timeout,
+ * and fails if any of them failed or did not complete in time.
+ *
+ * @since 0.5.3
+ */
+final class PublishingPipeline {
+	private static final Logger logger = Logger.getLogger(PublishingPipeline.class.getName());
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+	private final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactory() {
+		@Override
+		public Thread newThread(final Runnable runnable) {
+			Thread thread = new Thread(runnable, "rest-doclet-publisher-" + THREAD_COUNT.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+	private final List<String> names = new ArrayList<>();
+	private final List<Future<?>> futures = new ArrayList<>();
+
+	/**
+	 * Starts a task.
+	 *
+	 * @param name The name of the task, used in the log and in the failure.
+	 * @param task .
+	 */
+	void submit(final String name, final Callable<?> task) {
+		names.add(name);
+		futures.add(executor.submit(task));
+	}
+
+	/**
+	 * Waits for all the tasks to complete. The tasks that did not complete in time are cancelled.
+	 *
+	 * @param timeoutMillis The time to wait for all the tasks together.
+	 * @throws PublishingException If any of the tasks failed or did not complete in time.
+	 */
+	void awaitCompletion(final long timeoutMillis) throws PublishingException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		List<String> failures = new ArrayList<>();
+		try {
+			for (int i = 0; i < futures.size(); i++) {
+				String name = names.get(i);
+				Future<?> future = futures.get(i);
+				try {
+					future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+				} catch (ExecutionException e) {
+					failures.add(name);
+					logger.log(Level.WARNING, name + " failed. Exception was: " + e.getCause());
+				} catch (TimeoutException e) {
+					future.cancel(true);
+					failures.add(name);
+					logger.log(Level.WARNING, name + " did not complete within " + timeoutMillis + " ms, cancelled it.");
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new PublishingException("Interrupted while waiting for the publishing to complete");
+		} finally {
+			executor.shutdownNow();
+		}
+		if (!failures.isEmpty()) {
+			throw new PublishingException("The publishing of the documentation failed: " + failures);
+		}
+	}
+
+	/**
+	 * Cancels the tasks, when the run failed before waiting for them.
+	 */
+	void cancel() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * The documentation was written, but could not be published.
+	 */
+	static final class PublishingException extends IOException {
+		private static final long serialVersionUID = 1L;
+
+		PublishingException(final String message) {
+			super(message);
+		}
+	}
+}
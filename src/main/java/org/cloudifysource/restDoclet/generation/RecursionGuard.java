@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The stack of the types currently being traversed by a single traversal. <br />
+ * Membership and the index of a type are looked up in constant time:
+ * the index of the first occurrence of each type on the stack is kept along with the stack.
+ * A type may be pushed more than once (Java types are not checked for cycles),
+ * it stays a member until its first occurrence is popped.
+ * The guard is not thread-safe, it belongs to a single {@link GenerationContext}.
+ *
+ * @since 0.5.3
+ */
+final class RecursionGuard {
+	private final int maxDepth;
+	private final List<String> stack = new ArrayList<>();
+	private final Map<String, Integer> firstIndexes = new HashMap<>();
+
+	/**
+	 *
+	 * @param maxDepth The maximal number of types on the stack, 0 for no limit.
+	 */
+	RecursionGuard(final int maxDepth) {
+		this.maxDepth = maxDepth;
+	}
+
+	int getMaxDepth() {
+		return maxDepth;
+	}
+
+	void push(final String typeName) {
+		if (!firstIndexes.containsKey(typeName)) {
+			firstIndexes.put(typeName, stack.size());
+		}
+		stack.add(typeName);
+	}
+
+	void pop() {
+		int top = stack.size() - 1;
+		String typeName = stack.remove(top);
+		Integer firstIndex = firstIndexes.get(typeName);
+		if (firstIndex != null && firstIndex == top) {
+			firstIndexes.remove(typeName);
+		}
+	}
+
+	boolean contains(final String typeName) {
+		return firstIndexes.containsKey(typeName);
+	}
+
+	/**
+	 *
+	 * @param typeName .
+	 * @return The index of the first occurrence of the type on the stack, -1 if it is not on the stack.
+	 */
+	int indexOf(final String typeName) {
+		Integer firstIndex = firstIndexes.get(typeName);
+		return firstIndex == null ? -1 : firstIndex;
+	}
+
+	int depth() {
+		return stack.size();
+	}
+
+	/**
+	 *
+	 * @return true if there are more types on the stack than the maximal depth allows.
+	 */
+	boolean isDepthExceeded() {
+		return maxDepth > 0 && stack.size() > maxDepth;
+	}
+
+	void clear() {
+		stack.clear();
+		firstIndexes.clear();
+	}
+}
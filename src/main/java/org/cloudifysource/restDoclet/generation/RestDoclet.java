@@ -39,17 +39,28 @@ public class RestDoclet extends Doclet {
 	 * @return true on success. 
 	 */
 	public static boolean start(final RootDoc root) {
+		Generator generator = null;
 		try {
-			new Generator(root).run();
+			generator = new Generator(root);
+			generator.run();
 			logger.info(
 					"REST API documentation was successfully generated");
 			return true;
+		} catch (PublishingPipeline.PublishingException e) {
+			logger.log(
+					Level.SEVERE,
+					"REST API documentation was generated, but could not be published: " + e.getMessage());
+			return false;
 		} catch (Exception e) {
 			logger.log(
 					Level.SEVERE,
 					"Failed to generate REST API documentation.");
 			e.printStackTrace();
 			return false;
+		} finally {
+			if (generator != null) {
+				generator.reportMetrics();
+			}
 		}
 	}
 
@@ -65,7 +76,25 @@ public class RestDoclet extends Doclet {
 				|| RestDocConstants.DOC_CSS_PATH_FLAG.equals(option)
 				|| RestDocConstants.REQUEST_EXAMPLE_GENERATOR_CLASS_FLAG.equals(option)
 				|| RestDocConstants.RESPONSE_EXAMPLE_GENERATOR_CLASS_FLAG.equals(option)
-				|| RestDocConstants.REQUEST_BODY_PARAM_FILTER_CLASS_FLAG.equals(option)) {
+				|| RestDocConstants.REQUEST_BODY_PARAM_FILTER_CLASS_FLAG.equals(option)
+				|| RestDocConstants.PARALLELISM_FLAG.equals(option)
+				|| RestDocConstants.CACHE_PATH_FLAG.equals(option)
+				|| RestDocConstants.OUTPUT_MODE_FLAG.equals(option)
+				|| RestDocConstants.METRICS_PATH_FLAG.equals(option)
+				|| RestDocConstants.METRICS_TOP_N_FLAG.equals(option)
+				|| RestDocConstants.MAX_DEPTH_FLAG.equals(option)
+				|| RestDocConstants.MODEL_EXPORT_PATH_FLAG.equals(option)
+				|| RestDocConstants.MODEL_FORMAT_FLAG.equals(option)
+				|| RestDocConstants.OPEN_API_PATH_FLAG.equals(option)
+				|| RestDocConstants.OPEN_API_FORMAT_FLAG.equals(option)
+				|| RestDocConstants.CONFLUENCE_URL_FLAG.equals(option)
+				|| RestDocConstants.CONFLUENCE_SPACE_FLAG.equals(option)
+				|| RestDocConstants.CONFLUENCE_CREDENTIALS_FLAG.equals(option)
+				|| RestDocConstants.CONFLUENCE_TITLE_FLAG.equals(option)
+				|| RestDocConstants.CONFLUENCE_PARALLELISM_FLAG.equals(option)
+				|| RestDocConstants.CONFLUENCE_RETRIES_FLAG.equals(option)
+				|| RestDocConstants.CONFLUENCE_MANIFEST_FLAG.equals(option)
+				|| RestDocConstants.CONFLUENCE_TIMEOUT_FLAG.equals(option)) {
 			return 2;
 		}
 		return 0;
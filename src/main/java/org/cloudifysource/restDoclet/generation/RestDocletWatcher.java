@@ -0,0 +1,240 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.cloudifysource.restDoclet.constants.RestDocConstants;
+
+/**
+ * Keeps a JVM running that regenerates the documentation whenever a source file changes. <br />
+ * The arguments are the javadoc options the doclet would get (without -doclet), the -sourcepath option is required,
+ * its directories are watched recursively. The documentation is generated once on start,
+ * then again after each burst of changes to .java files.
+ * The directory of the velocity template (see {@link RestDocConstants#VELOCITY_TEMPLATE_PATH_FLAG}) is watched as well,
+ * a change to a .vm file drops the loaded templates (see {@link TemplateRenderer#reset()})
+ * and regenerates the documentation.
+ * <br />
+ * The javadoc model of a run refers to all the classes it parsed, so it cannot be updated with a single
+ * compilation unit: each run parses the sources again, in the same warm JVM, where the velocity templates
+ * and the JSON mapper are already loaded. The generation itself is incremental:
+ * unless given otherwise, the watcher uses the multi-page output and a fingerprints file
+ * (see {@link RestDocConstants#OUTPUT_MODE_FLAG} and {@link RestDocConstants#CACHE_PATH_FLAG}),
+ * so only the controllers affected by a change are generated and only their pages are written.
+ *
+ * @since 0.5.3
+ */
+public final class RestDocletWatcher {
+	private static final Logger logger = Logger.getLogger(RestDocletWatcher.class.getName());
+	private static final String PROGRAM_NAME = "rest-doclet-watch";
+	private static final String JAVA_SUFFIX = ".java";
+	private static final String TEMPLATE_SUFFIX = ".vm";
+	/**
+	 * A change is handled once no other change happened for this long,
+	 * so saving several files, or checking out a branch, regenerates the documentation once.
+	 */
+	private static final long DEBOUNCE_MILLIS = 200;
+
+	private final String[] javadocArgs;
+	private final WatchService watchService;
+	private final Map<WatchKey, Path> watchedDirs = new HashMap<>();
+
+	/**
+	 *
+	 * @param args The javadoc options.
+	 * @throws IOException .
+	 */
+	RestDocletWatcher(final String[] args) throws IOException {
+		String sourcePath = getOption(args, RestDocConstants.SOURCE_PATH_FLAG);
+		if (sourcePath == null) {
+			throw new IllegalArgumentException("The " + RestDocConstants.SOURCE_PATH_FLAG
+					+ " option is required, its directories are the ones watched.");
+		}
+		javadocArgs = withWatchDefaults(args);
+		watchService = FileSystems.getDefault().newWatchService();
+		for (String sourceDir : sourcePath.split(File.pathSeparator)) {
+			if (!sourceDir.isEmpty()) {
+				registerAll(new File(sourceDir).toPath());
+			}
+		}
+		String templatePath = getOption(args, RestDocConstants.VELOCITY_TEMPLATE_PATH_FLAG);
+		if (templatePath != null) {
+			File templateDir = new File(templatePath).getAbsoluteFile().getParentFile();
+			if (templateDir != null) {
+				register(templateDir.toPath());
+			}
+		}
+	}
+
+	/**
+	 * Generates the documentation, then watches the sources until the JVM is stopped.
+	 *
+	 * @param args The javadoc options.
+	 * @throws Exception .
+	 */
+	public static void main(final String[] args) throws Exception {
+		new RestDocletWatcher(args).watch();
+	}
+
+	/**
+	 * Generates the documentation, then again after each burst of changes.
+	 *
+	 * @throws InterruptedException when the watching thread is interrupted.
+	 */
+	void watch() throws InterruptedException {
+		generate();
+		logger.log(Level.INFO, "Watching " + watchedDirs.size() + " source directories for changes.");
+		while (true) {
+			boolean changed = handleEvents(watchService.take());
+			WatchKey next = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+			while (next != null) {
+				changed |= handleEvents(next);
+				next = watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+			}
+			if (changed) {
+				generate();
+			}
+		}
+	}
+
+	/**
+	 * Runs javadoc with the doclet in this JVM.
+	 *
+	 * @return true on success.
+	 */
+	boolean generate() {
+		long start = System.currentTimeMillis();
+		GenerationMetrics.markRunStart();
+		int exitCode = com.sun.tools.javadoc.Main.execute(PROGRAM_NAME, RestDoclet.class.getName(),
+				RestDoclet.class.getClassLoader(), javadocArgs);
+		if (exitCode != 0) {
+			logger.log(Level.WARNING, "javadoc failed with exit code " + exitCode
+					+ ", waiting for the next change.");
+			return false;
+		}
+		logger.log(Level.INFO, "Regenerated the documentation in " + (System.currentTimeMillis() - start) + " ms.");
+		return true;
+	}
+
+	// Returns true if a source file or a template was changed, added or removed, or if changes may have been lost
+	private boolean handleEvents(final WatchKey key) {
+		Path dir = watchedDirs.get(key);
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+				// A template may have changed as well
+				TemplateRenderer.reset();
+				changed = true;
+				continue;
+			}
+			Path path = dir.resolve((Path) event.context());
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+					&& Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+				// A new package, or a directory moved in with its sources
+				registerAll(path);
+				changed = true;
+			} else if (path.toString().endsWith(JAVA_SUFFIX)) {
+				changed = true;
+			} else if (path.toString().endsWith(TEMPLATE_SUFFIX)) {
+				TemplateRenderer.reset();
+				changed = true;
+			}
+		}
+		if (!key.reset()) {
+			watchedDirs.remove(key);
+		}
+		return changed;
+	}
+
+	private void registerAll(final Path root) {
+		try {
+			Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+						throws IOException {
+					registerDir(dir);
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Could not watch the source directory " + root + ". Exception was: " + e);
+		}
+	}
+
+	// Watches a single directory, without its sub-directories
+	private void register(final Path dir) {
+		try {
+			registerDir(dir);
+		} catch (IOException e) {
+			logger.log(Level.WARNING, "Could not watch the template directory " + dir + ". Exception was: " + e);
+		}
+	}
+
+	private void registerDir(final Path dir) throws IOException {
+		WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+		watchedDirs.put(key, dir);
+	}
+
+	private static String getOption(final String[] args, final String flag) {
+		for (int i = 0; i < args.length - 1; i++) {
+			if (flag.equals(args[i])) {
+				return args[i + 1];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Adds the multi-page output and a fingerprints file, unless the options set them.
+	 */
+	private static String[] withWatchDefaults(final String[] args) throws IOException {
+		List<String> watchArgs = new ArrayList<>(Arrays.asList(args));
+		if (getOption(args, RestDocConstants.OUTPUT_MODE_FLAG) == null) {
+			watchArgs.add(RestDocConstants.OUTPUT_MODE_FLAG);
+			watchArgs.add(RestDocConstants.OUTPUT_MODE_MULTI_PAGE);
+		}
+		if (getOption(args, RestDocConstants.CACHE_PATH_FLAG) == null) {
+			File cacheFile = File.createTempFile(PROGRAM_NAME, ".json");
+			cacheFile.deleteOnExit();
+			// An empty file cannot be parsed, the first run starts without fingerprints
+			Files.delete(cacheFile.toPath());
+			watchArgs.add(RestDocConstants.CACHE_PATH_FLAG);
+			watchArgs.add(cacheFile.getAbsolutePath());
+		}
+		return watchArgs.toArray(new String[watchArgs.size()]);
+	}
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import com.sun.javadoc.RootDoc;
+
+/**
+ * Guards the javadoc model of a run with a single lock, so it may be read by several threads. <br />
+ * The javadoc model is backed by the compiler's internals, which are not thread-safe:
+ * looking a class up may update the compiler's tables, and the members of a class are completed
+ * the first time they are read. The wrapped model forwards every call to the wrapped object while holding the lock,
+ * and wraps every part of the model the call returns (classes, members, types, annotations, tags),
+ * so none of the model is reached without the lock.
+ * The wrapped parts are unwrapped before they are passed back to the model.
+ * A part of the model is wrapped by the same object for as long as that object is in use.
+ *
+ * @since 0.5.3
+ */
+final class SynchronizedRootDoc {
+	private static final String MODEL_PACKAGE = RootDoc.class.getPackage().getName();
+
+	private final Map<Object, WeakReference<Object>> wrappers = new WeakHashMap<>();
+	private final Map<Class<?>, Class<?>[]> modelInterfaces = new HashMap<>();
+
+	private SynchronizedRootDoc() {
+	}
+
+	/**
+	 *
+	 * @param root The javadoc model of the run.
+	 * @return The same model, guarded by a lock of its own.
+	 */
+	static RootDoc wrap(final RootDoc root) {
+		SynchronizedRootDoc model = new SynchronizedRootDoc();
+		synchronized (model) {
+			return (RootDoc) model.wrapValue(root, RootDoc.class);
+		}
+	}
+
+	// Called while holding the lock.
+	// An array is wrapped element by element if it is declared as an array of the model,
+	// javadoc returns arrays of its implementation classes (ClassDocImpl[] for ClassDoc[]).
+	private Object wrapValue(final Object value, final Class<?> declaredType) {
+		if (value == null) {
+			return null;
+		}
+		Class<?> valueClass = value.getClass();
+		if (valueClass.isArray()) {
+			Class<?> componentType = declaredType.isArray() ? declaredType.getComponentType()
+					: valueClass.getComponentType();
+			if (!isModelType(componentType)) {
+				return value;
+			}
+			int length = Array.getLength(value);
+			Object array = Array.newInstance(componentType, length);
+			for (int i = 0; i < length; i++) {
+				Array.set(array, i, wrapValue(Array.get(value, i), componentType));
+			}
+			return array;
+		}
+		if (Proxy.isProxyClass(valueClass)) {
+			return value;
+		}
+		Class<?>[] interfaces = getModelInterfaces(valueClass);
+		if (interfaces.length == 0) {
+			return value;
+		}
+		WeakReference<Object> reference = wrappers.get(value);
+		Object wrapper = reference == null ? null : reference.get();
+		if (wrapper == null) {
+			wrapper = Proxy.newProxyInstance(RootDoc.class.getClassLoader(), interfaces, new Handler(value));
+			wrappers.put(value, new WeakReference<>(wrapper));
+		}
+		return wrapper;
+	}
+
+	private Object unwrapValue(final Object value) {
+		if (value != null && Proxy.isProxyClass(value.getClass())) {
+			InvocationHandler handler = Proxy.getInvocationHandler(value);
+			if (handler instanceof Handler) {
+				return ((Handler) handler).target;
+			}
+		}
+		return value;
+	}
+
+	private static boolean isModelType(final Class<?> type) {
+		return type.isInterface() && type.getPackage() != null && MODEL_PACKAGE.equals(type.getPackage().getName());
+	}
+
+	// The javadoc interfaces the class implements, in a fixed order so a class always gets the same proxy class
+	private Class<?>[] getModelInterfaces(final Class<?> valueClass) {
+		Class<?>[] interfaces = modelInterfaces.get(valueClass);
+		if (interfaces == null) {
+			Set<Class<?>> found = new LinkedHashSet<>();
+			for (Class<?> cls = valueClass; cls != null; cls = cls.getSuperclass()) {
+				for (Class<?> implemented : cls.getInterfaces()) {
+					if (isModelType(implemented)) {
+						found.add(implemented);
+					}
+				}
+			}
+			interfaces = found.toArray(new Class<?>[found.size()]);
+			modelInterfaces.put(valueClass, interfaces);
+		}
+		return interfaces;
+	}
+
+	/**
+	 * Forwards the calls to a single part of the model.
+	 */
+	private final class Handler implements InvocationHandler {
+		private final Object target;
+
+		private Handler(final Object target) {
+			this.target = target;
+		}
+
+		@Override
+		public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+			Object[] targetArgs = null;
+			if (args != null) {
+				targetArgs = new Object[args.length];
+				for (int i = 0; i < args.length; i++) {
+					targetArgs[i] = unwrapValue(args[i]);
+				}
+			}
+			synchronized (SynchronizedRootDoc.this) {
+				try {
+					return wrapValue(method.invoke(target, targetArgs), method.getReturnType());
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.Writer;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.resource.loader.ClasspathResourceLoader;
+
+/**
+ * Renders the velocity templates of the doclet. <br />
+ * There is one renderer per template path in the JVM: its engine is initialized and each of its templates
+ * is parsed the first time they are needed, then reused by all the following runs
+ * (several modules generated by the same JVM, or the runs of a watch mode).
+ * The templates are not checked for modifications while a renderer is in use: the watch mode drops the renderers
+ * when a template changes (see {@link #reset()}), so the next run loads and parses the templates again.
+ * Renderers are thread-safe, a template may be merged by several threads at once.
+ *
+ * @since 0.5.3
+ */
+final class TemplateRenderer {
+	private static final Logger logger = Logger.getLogger(TemplateRenderer.class.getName());
+	private static final String CLASSPATH_KEY = "classpath:";
+	private static final ConcurrentMap<String, TemplateRenderer> RENDERERS = new ConcurrentHashMap<>();
+
+	private final VelocityEngine engine;
+	private final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<>();
+
+	private TemplateRenderer(final String templatePath) {
+		Properties p = new Properties();
+		p.setProperty("directive.set.null.allowed", "true");
+		if (templatePath != null) {
+			// The classpath is searched as well, for the index template
+			p.setProperty(RuntimeConstants.RESOURCE_LOADER, "file, classpath");
+			p.setProperty("file.resource.loader.path", templatePath);
+			p.setProperty("file.resource.loader.cache", "true");
+			p.setProperty("file.resource.loader.modificationCheckInterval", "-1");
+		} else {
+			p.setProperty(RuntimeConstants.RESOURCE_LOADER, "classpath");
+		}
+		p.setProperty("classpath.resource.loader.class",
+				ClasspathResourceLoader.class.getName());
+		p.setProperty("classpath.resource.loader.cache", "true");
+		p.setProperty("classpath.resource.loader.modificationCheckInterval", "-1");
+
+		engine = new VelocityEngine(p);
+		engine.init();
+	}
+
+	/**
+	 *
+	 * @param templatePath The directory of the user's templates, null to load the templates from the classpath only.
+	 * @return The renderer of the given template path.
+	 */
+	static TemplateRenderer forTemplatePath(final String templatePath) {
+		String key = templatePath == null ? CLASSPATH_KEY : templatePath;
+		TemplateRenderer renderer = RENDERERS.get(key);
+		if (renderer == null) {
+			synchronized (RENDERERS) {
+				renderer = RENDERERS.get(key);
+				if (renderer == null) {
+					logger.log(Level.INFO, "Initializing velocity for the template path "
+							+ (templatePath == null ? "(default template path)" : templatePath));
+					renderer = new TemplateRenderer(templatePath);
+					RENDERERS.put(key, renderer);
+				}
+			}
+		}
+		return renderer;
+	}
+
+	/**
+	 * Drops the renderers of all the template paths,
+	 * the following runs initialize the engines and parse the templates again.
+	 */
+	static void reset() {
+		synchronized (RENDERERS) {
+			RENDERERS.clear();
+		}
+		logger.log(Level.INFO, "Dropped the velocity templates, they are loaded again by the next run.");
+	}
+
+	/**
+	 *
+	 * @param templateName .
+	 * @return The parsed template.
+	 */
+	Template getTemplate(final String templateName) {
+		Template template = templates.get(templateName);
+		if (template == null) {
+			Template parsed = engine.getTemplate(templateName);
+			template = templates.putIfAbsent(templateName, parsed);
+			if (template == null) {
+				template = parsed;
+			}
+		}
+		return template;
+	}
+
+	/**
+	 * Merges a template into the given writer, the writer is not closed.
+	 *
+	 * @param templateName .
+	 * @param ctx .
+	 * @param writer .
+	 */
+	void merge(final String templateName, final VelocityContext ctx, final Writer writer) {
+		getTemplate(templateName).merge(ctx, writer);
+	}
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.cloudifysource.restDoclet.constants.RestDocConstants;
+import org.cloudifysource.restDoclet.docElements.DocAnnotation;
+import org.cloudifysource.restDoclet.docElements.DocAnnotations;
+import org.cloudifysource.restDoclet.docElements.DocParameter;
+
+import com.sun.javadoc.FieldDoc;
+import com.sun.javadoc.Type;
+
+/**
+ * Caches, for a single run, the schemas computed for the types of the documented parameters. <br />
+ * A schema is keyed by the type and its resolved type arguments
+ * (see {@link TypeVariableResolver#key(Type, TypeVariableResolver.Bindings)}). Two kinds of schemas are kept:
+ * <ul>
+ * <li>The field tree - the flattened sub-parameters of the type, with paths relative to the type.</li>
+ * <li>The example - the map that is serialized as the JSON example of the type.</li>
+ * </ul>
+ * Only schemas that do not depend on the types that were being traversed when they were
+ * computed are cached (see {@link GenerationContext#endTraversal(GenerationContext.Traversal, Object)}).
+ * A cached schema keeps the types its traversal looked up on the stack, and is reused only where
+ * none of them is being traversed (see {@link GenerationContext#reuse(Entry)}),
+ * so the cached schemas are the same as the schemas computed without the cache,
+ * whatever the order the types are traversed in.
+ *
+ * @since 0.5.3
+ */
+final class TypeSchemaCache {
+	private final ConcurrentMap<String, Entry<List<FieldNode>>> fieldTrees = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, Entry<Map<String, Object>>> examples = new ConcurrentHashMap<>();
+
+	Entry<List<FieldNode>> getFieldTree(final String key) {
+		return fieldTrees.get(key);
+	}
+
+	void putFieldTree(final String key, final Entry<List<FieldNode>> fieldTree) {
+		fieldTrees.putIfAbsent(key, fieldTree);
+	}
+
+	Entry<Map<String, Object>> getExample(final String key) {
+		return examples.get(key);
+	}
+
+	void putExample(final String key, final Entry<Map<String, Object>> example) {
+		examples.putIfAbsent(key, example);
+	}
+
+	/**
+	 * A cached schema, with what the traversal that computed it depends on.
+	 */
+	static final class Entry<T> {
+		private final T schema;
+		private final Set<String> types;
+		private final int height;
+
+		/**
+		 *
+		 * @param schema .
+		 * @param types The types the traversal looked up on the stack.
+		 * @param height The number of types the traversal pushed on top of the type it started from.
+		 */
+		Entry(final T schema, final Set<String> types, final int height) {
+			this.schema = schema;
+			this.types = types;
+			this.height = height;
+		}
+
+		T getSchema() {
+			return schema;
+		}
+
+		Set<String> getTypes() {
+			return types;
+		}
+
+		int getHeight() {
+			return height;
+		}
+	}
+
+	/**
+	 * A single sub-parameter of a field tree.
+	 */
+	static final class FieldNode {
+		private final String path;
+		private final Type type;
+		private final FieldDoc field;
+		private final boolean required;
+
+		FieldNode(final String path, final Type type, final FieldDoc field, final boolean required) {
+			this.path = path;
+			this.type = type;
+			this.field = field;
+			this.required = required;
+		}
+
+		/**
+		 *
+		 * @param parentPath .
+		 * @return The same node, relative to the given parent.
+		 */
+		FieldNode under(final String parentPath) {
+			return new FieldNode(parentPath + "." + path, type, field, required);
+		}
+
+		/**
+		 * Creates the parameter of this node.
+		 * The required attribute of the RequestBody annotation is updated before the annotations are set,
+		 * the same way it is done for the parameter itself.
+		 *
+		 * @param prefix The name of the parameter the tree belongs to.
+		 * @param annotations The annotations of the parameter the tree belongs to.
+		 * @return The sub-parameter.
+		 */
+		DocParameter toDocParameter(final String prefix, final DocAnnotations annotations) {
+			String name = prefix.length() > 0 ? prefix + "." + path : path;
+			DocParameter docParameter = new DocParameter(name, type);
+			docParameter.setDescription(field.commentText());
+			DocAnnotation requestBody = annotations.getRequestBody();
+			if (requestBody != null) {
+				requestBody.addAttribute(RestDocConstants.REQUEST_PARAMS_REQUIRED, required);
+			}
+			docParameter.setAnnotations(annotations);
+			return docParameter;
+		}
+	}
+}
@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.ParameterizedType;
+import com.sun.javadoc.ProgramElementDoc;
+import com.sun.javadoc.RootDoc;
+import com.sun.javadoc.Type;
+import com.sun.javadoc.TypeVariable;
+import com.sun.javadoc.WildcardType;
+
+/**
+ * Resolves, for a single run, the type variables of the controllers and of the DTOs
+ * to the type arguments they are bound to. <br />
+ * The bindings of a generic type bind the type variables of its class, and of the superclasses of its class,
+ * to the type arguments given to them. A type argument that refers to type variables itself (a List of T)
+ * is bound along with the bindings of the type it was given in, so nested generic types resolve
+ * without looking the type variables up again.
+ * The type variables are keyed by the class (or the method) that declares them, so the variables of the same name
+ * of a class and of its superclass do not shadow one another.
+ * The bindings are computed the first time a class is used with given type arguments,
+ * they are immutable and shared by all the threads.
+ *
+ * @since 0.5.3
+ */
+final class TypeVariableResolver {
+	private final RootDoc documentation;
+	private final ConcurrentMap<String, Bindings> bindings = new ConcurrentHashMap<>();
+
+	/**
+	 *
+	 * @param documentation The javadoc model of the run.
+	 */
+	TypeVariableResolver(final RootDoc documentation) {
+		this.documentation = documentation;
+	}
+
+	/**
+	 *
+	 * @param type .
+	 * @param scope The bindings of the type variables the type refers to.
+	 * @return The type argument the type is bound to, with its own bindings, if the type is a bound type variable.
+	 * Otherwise the type itself, with the given bindings.
+	 */
+	BoundType resolve(final Type type, final Bindings scope) {
+		TypeVariable variable = type.asTypeVariable();
+		if (variable != null) {
+			BoundType bound = scope.get(variable);
+			if (bound != null) {
+				return bound;
+			}
+		}
+		return new BoundType(type, refersToVariables(type) ? scope : Bindings.EMPTY);
+	}
+
+	/**
+	 *
+	 * @param type .
+	 * @param scope The bindings of the type variables the type refers to.
+	 * @return The bindings of the type variables of the type's class and of its superclasses,
+	 * empty if the type's class is not part of the javadoc model.
+	 */
+	Bindings bindingsOf(final Type type, final Bindings scope) {
+		String key = key(type, scope);
+		Bindings cached = bindings.get(key);
+		if (cached != null) {
+			return cached;
+		}
+		Bindings computed = computeBindings(type, scope);
+		Bindings existing = bindings.putIfAbsent(key, computed);
+		return existing == null ? computed : existing;
+	}
+
+	/**
+	 * The key is made of the type's class and of its resolved type arguments,
+	 * two types that resolve to the same type have the same key.
+	 *
+	 * @param type .
+	 * @param scope The bindings of the type variables the type refers to.
+	 * @return The cache key of the type.
+	 */
+	String key(final Type type, final Bindings scope) {
+		StringBuilder key = new StringBuilder();
+		appendKey(key, type, scope);
+		return key.toString();
+	}
+
+	private void appendKey(final StringBuilder key, final Type type, final Bindings scope) {
+		TypeVariable variable = type.asTypeVariable();
+		if (variable != null) {
+			BoundType bound = scope.get(variable);
+			if (bound != null) {
+				appendKey(key, bound.getType(), bound.getBindings());
+			} else {
+				key.append(variableKey(variable));
+			}
+			return;
+		}
+		key.append(type.qualifiedTypeName());
+		ParameterizedType parameterizedType = type.asParameterizedType();
+		if (parameterizedType != null) {
+			key.append('<');
+			for (Type argument : parameterizedType.typeArguments()) {
+				appendKey(key, argument, scope);
+				key.append(',');
+			}
+			key.append('>');
+		}
+		key.append(type.dimension());
+	}
+
+	// The type arguments of each superclass refer to the type variables of its subclass,
+	// they are resolved with the bindings of the subclass
+	private Bindings computeBindings(final Type type, final Bindings scope) {
+		Map<String, BoundType> variables = new HashMap<>();
+		ClassDoc classDoc = documentation.classNamed(type.qualifiedTypeName());
+		Type[] arguments = typeArguments(type);
+		Bindings argumentsScope = scope;
+		while (classDoc != null && !Generator.isJavaType(classDoc.qualifiedTypeName())) {
+			TypeVariable[] parameters = classDoc.typeParameters();
+			for (int i = 0; i < parameters.length && i < arguments.length; i++) {
+				BoundType argument = resolve(arguments[i], argumentsScope);
+				// The variables bound to an unbound variable stay unbound
+				if (argument.getType().asTypeVariable() == null) {
+					variables.put(variableKey(parameters[i]), argument);
+				}
+			}
+			Type superclass = classDoc.superclassType();
+			if (superclass == null) {
+				break;
+			}
+			argumentsScope = new Bindings(variables);
+			arguments = typeArguments(superclass);
+			classDoc = documentation.classNamed(superclass.qualifiedTypeName());
+		}
+		return variables.isEmpty() ? Bindings.EMPTY : new Bindings(variables);
+	}
+
+	private static Type[] typeArguments(final Type type) {
+		ParameterizedType parameterizedType = type.asParameterizedType();
+		return parameterizedType == null ? new Type[0] : parameterizedType.typeArguments();
+	}
+
+	private static boolean refersToVariables(final Type type) {
+		if (type.asTypeVariable() != null) {
+			return true;
+		}
+		WildcardType wildcardType = type.asWildcardType();
+		if (wildcardType != null) {
+			return refersToVariables(wildcardType.extendsBounds()) || refersToVariables(wildcardType.superBounds());
+		}
+		return refersToVariables(typeArguments(type));
+	}
+
+	private static boolean refersToVariables(final Type[] types) {
+		for (Type type : types) {
+			if (refersToVariables(type)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String variableKey(final TypeVariable variable) {
+		ProgramElementDoc owner = variable.owner();
+		return owner == null ? variable.typeName() : owner.qualifiedName() + "#" + variable.typeName();
+	}
+
+	/**
+	 * The type arguments bound to type variables, keyed by the type variables.
+	 */
+	static final class Bindings {
+		/**
+		 * No type variable is bound.
+		 */
+		static final Bindings EMPTY = new Bindings(Collections.<String, BoundType>emptyMap());
+
+		private final Map<String, BoundType> variables;
+
+		private Bindings(final Map<String, BoundType> variables) {
+			this.variables = Collections.unmodifiableMap(new HashMap<>(variables));
+		}
+
+		/**
+		 *
+		 * @param variable .
+		 * @return The type argument bound to the variable, null if it is not bound.
+		 */
+		BoundType get(final TypeVariable variable) {
+			return variables.get(variableKey(variable));
+		}
+	}
+
+	/**
+	 * A type, with the bindings of the type variables it refers to.
+	 */
+	static final class BoundType {
+		private final Type type;
+		private final Bindings bindings;
+
+		private BoundType(final Type type, final Bindings bindings) {
+			this.type = type;
+			this.bindings = bindings;
+		}
+
+		Type getType() {
+			return type;
+		}
+
+		Bindings getBindings() {
+			return bindings;
+		}
+	}
+}
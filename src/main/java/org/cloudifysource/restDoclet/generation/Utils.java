@@ -18,8 +18,6 @@ package org.cloudifysource.restDoclet.generation;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.io.StringReader;
-import java.io.StringWriter;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -27,7 +25,9 @@ import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.cloudifysource.restDoclet.constants.RestDocConstants;
+import org.cloudifysource.restDoclet.constants.RestDocConstants.DocAnnotationTypes;
 import org.cloudifysource.restDoclet.docElements.DocAnnotation;
+import org.cloudifysource.restDoclet.docElements.DocAnnotations;
 import org.cloudifysource.restDoclet.docElements.DocController;
 import org.cloudifysource.restDoclet.docElements.DocHttpMethod;
 import org.cloudifysource.restDoclet.docElements.DocJsonRequestExample;
@@ -37,11 +37,7 @@ import org.cloudifysource.restDoclet.docElements.DocPossibleResponseStatusAnnota
 import org.cloudifysource.restDoclet.docElements.DocPossibleResponseStatusesAnnotation;
 import org.cloudifysource.restDoclet.docElements.DocRequestMappingAnnotation;
 import org.cloudifysource.restDoclet.docElements.DocRequestParamAnnotation;
-import org.codehaus.jackson.JsonFactory;
-import org.codehaus.jackson.JsonGenerator;
-import org.codehaus.jackson.JsonNode;
-import org.codehaus.jackson.JsonParser;
-import org.codehaus.jackson.map.ObjectMapper;
+import org.cloudifysource.restDoclet.exampleGenerators.JsonSerialization;
 
 import com.sun.javadoc.AnnotationDesc;
 import com.sun.javadoc.AnnotationDesc.ElementValuePair;
@@ -71,7 +67,7 @@ public final class Utils {
 			String fullName = annotationDesc.toString();
 			name = fullName.substring(1);
 		}
-		switch (RestDocConstants.DocAnnotationTypes.fromName(name)) {
+		switch (DocAnnotationTypes.fromName(name)) {
 		case REQUEST_MAPPING:
 			docAnnotation = new DocRequestMappingAnnotation(name);
 			break;
@@ -108,21 +104,15 @@ public final class Utils {
 	/**
 	 * 
 	 * @param annotations .
-	 * @param annotationName .
-	 * @return The annotation.
+	 * @param annotationType .
+	 * @return The annotation, null if there is no annotation of that type.
 	 */
 	protected static DocAnnotation getAnnotation(
-			final List<DocAnnotation> annotations, final String annotationName) {
-		DocAnnotation requestedAnnotation = null;
-		if (annotations != null) {
-			for (DocAnnotation annotation : annotations) {
-				if (annotation.getName().equals(annotationName)) {
-					requestedAnnotation = annotation;
-					break;
-				}
-			}
+			final DocAnnotations annotations, final DocAnnotationTypes annotationType) {
+		if (annotations == null) {
+			return null;
 		}
-		return requestedAnnotation;
+		return annotations.get(annotationType);
 	}
 
 	/**
@@ -131,9 +121,8 @@ public final class Utils {
 	 * @return The 
 	 */
 	protected static DocRequestParamAnnotation getRequestParamAnnotation(
-			final List<DocAnnotation> annotations) {
-		return (DocRequestParamAnnotation) getAnnotation(annotations,
-				RestDocConstants.REQUEST_PARAMS_ANNOTATION);
+			final DocAnnotations annotations) {
+		return annotations == null ? null : annotations.getRequestParam();
 	}
 
 	/**
@@ -143,9 +132,8 @@ public final class Utils {
 	 * null if the annotations list doesn't contain a RequestMapping annotation.
 	 */
 	protected static DocRequestMappingAnnotation getRequestMappingAnnotation(
-			final List<DocAnnotation> annotations) {
-		return (DocRequestMappingAnnotation) getAnnotation(annotations,
-				RestDocConstants.REQUEST_MAPPING_ANNOTATION);
+			final DocAnnotations annotations) {
+		return annotations == null ? null : annotations.getRequestMapping();
 	}
 
 	/**
@@ -155,9 +143,8 @@ public final class Utils {
 	 * null if the annotations list doesn't contain a RequestMapping annotation.
 	 */
 	protected static DocJsonResponseExample getJsonResponseExampleAnnotation(
-			final List<DocAnnotation> annotations) {
-		return (DocJsonResponseExample) getAnnotation(annotations,
-				RestDocConstants.JSON_RESPONSE_EXAMPLE_ANNOTATION);
+			final DocAnnotations annotations) {
+		return annotations == null ? null : annotations.getJsonResponseExample();
 	}
 
 	/**
@@ -167,9 +154,8 @@ public final class Utils {
 	 * null if the annotations list doesn't contain a RequestMapping annotation.
 	 */
 	protected static DocJsonRequestExample getJsonRequestExampleAnnotation(
-			final List<DocAnnotation> annotations) {
-		return (DocJsonRequestExample) getAnnotation(annotations,
-				RestDocConstants.JSON_REQUEST_EXAMPLE_ANNOTATION);
+			final DocAnnotations annotations) {
+		return annotations == null ? null : annotations.getJsonRequestExample();
 	}
 
 	/**
@@ -179,9 +165,8 @@ public final class Utils {
 	 * null if the annotations list doesn't contain a RequestMapping annotation.
 	 */
 	protected static DocPossibleResponseStatusAnnotation getPossibleResponseStatusAnnotation(
-			final List<DocAnnotation> annotations) {
-		return (DocPossibleResponseStatusAnnotation) getAnnotation(annotations,
-				RestDocConstants.POSSIBLE_RESPONSE_STATUS_ANNOTATION);
+			final DocAnnotations annotations) {
+		return annotations == null ? null : annotations.getPossibleResponseStatus();
 	}
 
 	/**
@@ -191,10 +176,8 @@ public final class Utils {
 	 * null if the annotations list doesn't contain a RequestMapping annotation.
 	 */
 	protected static DocPossibleResponseStatusesAnnotation getPossibleResponseStatusesAnnotation(
-			final List<DocAnnotation> annotations) {
-		return (DocPossibleResponseStatusesAnnotation) getAnnotation(
-				annotations,
-				RestDocConstants.POSSIBLE_RESPONSE_STATUSES_ANNOTATION);
+			final DocAnnotations annotations) {
+		return annotations == null ? null : annotations.getPossibleResponseStatuses();
 	}
 
 	/**
@@ -219,10 +202,10 @@ public final class Utils {
 	 * @return true if the class should be filtered out, false otherwise.
 	 */
 	protected static boolean filterOutControllerClass(final ClassDoc classDoc,
-			final List<DocAnnotation> annotations) {
+			final DocAnnotations annotations) {
 		String name = classDoc.qualifiedTypeName();
 		return (Utils.getAnnotation(annotations,
-				RestDocConstants.CONTROLLER_ANNOTATION) == null 
+				DocAnnotationTypes.CONTROLLER) == null 
 				|| RestDocConstants.ADMIN_API_CONTROLLER_CLASS_NAME.equals(name));
 		// return
 		// !(classDoc.qualifiedTypeName().equals(RestDocConstants.SERVICE_CONTROLLER_CLASS_NAME));
@@ -235,9 +218,9 @@ public final class Utils {
 	 * @return true if the method should be filtered out, false otherwise.
 	 */
 	protected static boolean filterOutMethod(final MethodDoc methodDoc,
-			final List<DocAnnotation> annotations) {
-		return (getAnnotation(annotations, RestDocConstants.INTERNAL_METHOD_ANNOTATION) != null 
-				|| getAnnotation(annotations, RestDocConstants.REQUEST_MAPPING_ANNOTATION) == null);
+			final DocAnnotations annotations) {
+		return (getAnnotation(annotations, DocAnnotationTypes.INTERNAL_METHOD_ANNOTATION) != null 
+				|| getAnnotation(annotations, DocAnnotationTypes.REQUEST_MAPPING) == null);
 	}
 	
 	@SuppressWarnings("unused")
@@ -273,6 +256,8 @@ public final class Utils {
 	}
 
 	/**
+	 * Indents a JSON string, used for the examples given by the user in
+	 * the JsonRequestExample and JsonResponseExample annotations.
 	 * 
 	 * @param body .
 	 * @return The body in Json format.
@@ -283,36 +268,7 @@ public final class Utils {
 			return null;
 		}
 
-		StringWriter out = new StringWriter();
-		JsonParser parser = null;
-		JsonGenerator gen = null;
-		try {
-			JsonFactory fac = new JsonFactory();
-
-			parser = fac.createJsonParser(new StringReader(body));
-			ObjectMapper mapper = new ObjectMapper();
-			JsonNode node = mapper.readTree(parser);
-			// Create pretty printer:
-			gen = fac.createJsonGenerator(out);
-			gen.useDefaultPrettyPrinter();
-			// Write:
-			mapper.writeTree(gen, node);
-
-			gen.close();
-			parser.close();
-
-			return out.toString();
-
-		} finally {
-			out.close();
-			if (gen != null) {
-				gen.close();
-			}
-			if (parser != null) {
-				parser.close();
-			}
-		}
-
+		return JsonSerialization.indent(body);
 	}
 
 	private Utils() {
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Writes a tree of maps, lists, strings, numbers and booleans in block style YAML. <br />
+ * Only what the OpenAPI document needs is supported: the strings are always double-quoted
+ * and the keys are quoted unless they are plain identifiers, so no value is read back as another type.
+ *
+ * @since 0.5.3
+ */
+final class YamlWriter {
+	private static final String INDENT = "  ";
+	private static final Pattern PLAIN_KEY = Pattern.compile("[A-Za-z_][A-Za-z0-9_.-]*");
+
+	private final Writer writer;
+
+	YamlWriter(final Writer writer) {
+		this.writer = writer;
+	}
+
+	/**
+	 *
+	 * @param document The root map.
+	 * @throws IOException .
+	 */
+	void write(final Map<String, ?> document) throws IOException {
+		if (document.isEmpty()) {
+			writer.write("{}\n");
+			return;
+		}
+		writeMap(document, 0, false);
+	}
+
+	// The first entry of a map that is a list item is written on the line of the dash
+	private void writeMap(final Map<?, ?> map, final int level, final boolean isListItem) throws IOException {
+		boolean isFirst = true;
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			if (!(isFirst && isListItem)) {
+				indent(level);
+			}
+			isFirst = false;
+			writeKey(String.valueOf(entry.getKey()));
+			writer.write(':');
+			writeNested(entry.getValue(), level + 1);
+		}
+	}
+
+	private void writeList(final List<?> list, final int level) throws IOException {
+		for (Object item : list) {
+			indent(level);
+			writer.write("- ");
+			if (item instanceof Map && !((Map<?, ?>) item).isEmpty()) {
+				writeMap((Map<?, ?>) item, level + 1, true);
+			} else if (item instanceof List && !((List<?>) item).isEmpty()) {
+				writer.write('\n');
+				writeList((List<?>) item, level + 1);
+			} else {
+				writeScalar(item);
+				writer.write('\n');
+			}
+		}
+	}
+
+	// Writes the value of a map entry, after its key
+	private void writeNested(final Object value, final int level) throws IOException {
+		if (value instanceof Map && !((Map<?, ?>) value).isEmpty()) {
+			writer.write('\n');
+			writeMap((Map<?, ?>) value, level, false);
+		} else if (value instanceof List && !((List<?>) value).isEmpty()) {
+			writer.write('\n');
+			writeList((List<?>) value, level);
+		} else {
+			writer.write(' ');
+			writeScalar(value);
+			writer.write('\n');
+		}
+	}
+
+	private void writeScalar(final Object value) throws IOException {
+		if (value == null) {
+			writer.write("null");
+		} else if (value instanceof Map) {
+			writer.write("{}");
+		} else if (value instanceof List) {
+			writer.write("[]");
+		} else if (value instanceof Number || value instanceof Boolean) {
+			writer.write(value.toString());
+		} else {
+			writeQuoted(value.toString());
+		}
+	}
+
+	private void writeKey(final String key) throws IOException {
+		if (PLAIN_KEY.matcher(key).matches() && !isReserved(key)) {
+			writer.write(key);
+		} else {
+			writeQuoted(key);
+		}
+	}
+
+	// Plain keys that a YAML reader would take for a boolean or a null
+	private static boolean isReserved(final String key) {
+		String lowerCase = key.toLowerCase();
+		return "true".equals(lowerCase) || "false".equals(lowerCase) || "yes".equals(lowerCase)
+				|| "no".equals(lowerCase) || "on".equals(lowerCase) || "off".equals(lowerCase)
+				|| "y".equals(lowerCase) || "n".equals(lowerCase) || "null".equals(lowerCase);
+	}
+
+	private void writeQuoted(final String value) throws IOException {
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				writer.write("\\\"");
+				break;
+			case '\\':
+				writer.write("\\\\");
+				break;
+			case '\n':
+				writer.write("\\n");
+				break;
+			case '\r':
+				writer.write("\\r");
+				break;
+			case '\t':
+				writer.write("\\t");
+				break;
+			default:
+				if (c < ' ') {
+					writer.write(String.format("\\u%04x", (int) c));
+				} else {
+					writer.write(c);
+				}
+			}
+		}
+		writer.write('"');
+	}
+
+	private void indent(final int level) throws IOException {
+		for (int i = 0; i < level; i++) {
+			writer.write(INDENT);
+		}
+	}
+}
@@ -0,0 +1,566 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Publishes pages to an in-process server that plays the Confluence REST API,
+ * with and without a manifest of the pages published before.
+ *
+ * @since 0.5.3
+ */
+public class ConfluencePublisherTest {
+	private static final String SPACE = "DOCS";
+	private static final String CREDENTIALS = "user:secret";
+	private static final String CONTENT_PATH = "/rest/api/content";
+	private static final String NO_RESULTS = "{\"results\":[]}";
+	private static final int PARALLELISM = 3;
+	private static final int RETRIES = 2;
+	private static final Pattern VERSION = Pattern.compile("\"number\":(\\d+)");
+
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private File manifestDir;
+	// The replies to the next requests, the requests that have none get the default reply
+	private final Queue<Reply> replies = new ConcurrentLinkedQueue<>();
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+	private final List<String> bodies = Collections.synchronizedList(new ArrayList<String>());
+	private final AtomicInteger createdPages = new AtomicInteger();
+
+	/**
+	 *
+	 * @throws Exception .
+	 */
+	@Before
+	public void setUp() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		serverExecutor = Executors.newCachedThreadPool();
+		server.setExecutor(serverExecutor);
+		server.createContext(CONTENT_PATH, new HttpHandler() {
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				String body = read(exchange.getRequestBody());
+				String request = exchange.getRequestMethod() + " " + exchange.getRequestURI().getPath();
+				requests.add(request);
+				bodies.add(body);
+				Reply reply = replies.poll();
+				if (reply == null) {
+					reply = getDefaultReply(exchange, body);
+				}
+				byte[] content = reply.body.getBytes(StandardCharsets.UTF_8);
+				exchange.getResponseHeaders().add("Content-Type", "application/json");
+				exchange.sendResponseHeaders(reply.status, content.length);
+				OutputStream out = exchange.getResponseBody();
+				out.write(content);
+				out.close();
+			}
+		});
+		server.start();
+		manifestDir = Files.createTempDirectory("rest-doclet-confluence").toFile();
+	}
+
+	/**
+	 *
+	 * @throws Exception .
+	 */
+	@After
+	public void tearDown() throws Exception {
+		server.stop(0);
+		serverExecutor.shutdownNow();
+		TestJavadoc.delete(manifestDir);
+	}
+
+	/**
+	 * A page that is not found by its title is created under its parent.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testCreatesMissingPage() throws Exception {
+		ConfluencePublisher publisher = newPublisher();
+		try {
+			Assert.assertEquals("100", publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), "5"));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("GET " + CONTENT_PATH + ", POST " + CONTENT_PATH, join(requests));
+		String created = bodies.get(1);
+		Assert.assertTrue(created, created.contains("\"title\":\"API\""));
+		Assert.assertTrue(created, created.contains("\"ancestors\":[{\"id\":\"5\"}]"));
+		Assert.assertTrue(created, created.contains("\"value\":\"<p>api</p>\""));
+		Assert.assertFalse(created, created.contains("\"version\""));
+		Assert.assertEquals(1, publisher.getUploadedPages());
+	}
+
+	/**
+	 * A page that is found by its title is updated to its next version.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testUpdatesExistingPage() throws Exception {
+		replies.add(new Reply(200, found("7", 3)));
+		ConfluencePublisher publisher = newPublisher();
+		try {
+			Assert.assertEquals("7", publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), null));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("GET " + CONTENT_PATH + ", PUT " + CONTENT_PATH + "/7", join(requests));
+		String updated = bodies.get(1);
+		Assert.assertTrue(updated, updated.contains("\"id\":\"7\""));
+		Assert.assertTrue(updated, updated.contains("\"version\":{\"number\":4}"));
+		Assert.assertFalse(updated, updated.contains("\"ancestors\""));
+	}
+
+	/**
+	 * Server errors and "too many requests" are retried.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testRetriesServerErrors() throws Exception {
+		replies.add(new Reply(503, "unavailable"));
+		replies.add(new Reply(429, "slow down"));
+		replies.add(new Reply(200, found("7", 1)));
+		replies.add(new Reply(500, "failed"));
+		ConfluencePublisher publisher = newPublisher();
+		try {
+			Assert.assertEquals("7", publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), null));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("GET " + CONTENT_PATH + ", GET " + CONTENT_PATH + ", GET " + CONTENT_PATH
+				+ ", PUT " + CONTENT_PATH + "/7, PUT " + CONTENT_PATH + "/7", join(requests));
+	}
+
+	/**
+	 * A request is not retried more than the given number of times.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testGivesUpAfterRetries() throws Exception {
+		for (int i = 0; i <= RETRIES; i++) {
+			replies.add(new Reply(500, "failed"));
+		}
+		ConfluencePublisher publisher = newPublisher();
+		try {
+			publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), null);
+			Assert.fail("The page was published although the look-up failed");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("500"));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals(RETRIES + 1, requests.size());
+	}
+
+	/**
+	 * Client errors are not retried.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testDoesNotRetryClientErrors() throws Exception {
+		replies.add(new Reply(200, found("7", 1)));
+		replies.add(new Reply(400, "bad request"));
+		ConfluencePublisher publisher = newPublisher();
+		try {
+			publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), null);
+			Assert.fail("The page was published although the update was rejected");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("400"));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("GET " + CONTENT_PATH + ", PUT " + CONTENT_PATH + "/7", join(requests));
+		Assert.assertEquals(0, publisher.getUploadedPages());
+	}
+
+	/**
+	 * A failed create is not sent again as is: the page is looked up again, and updated if the create went through.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testLooksUpBeforeRetryingCreate() throws Exception {
+		replies.add(new Reply(200, NO_RESULTS));
+		replies.add(new Reply(502, "bad gateway"));
+		replies.add(new Reply(200, found("9", 1)));
+		ConfluencePublisher publisher = newPublisher();
+		try {
+			Assert.assertEquals("9", publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), null));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("GET " + CONTENT_PATH + ", POST " + CONTENT_PATH + ", GET " + CONTENT_PATH
+				+ ", PUT " + CONTENT_PATH + "/9", join(requests));
+		Assert.assertTrue(bodies.get(3), bodies.get(3).contains("\"version\":{\"number\":2}"));
+	}
+
+	/**
+	 * A failed create is sent again once the page is not found.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testRetriesCreateOfMissingPage() throws Exception {
+		replies.add(new Reply(200, NO_RESULTS));
+		replies.add(new Reply(500, "failed"));
+		ConfluencePublisher publisher = newPublisher();
+		try {
+			Assert.assertEquals("100", publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), null));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("GET " + CONTENT_PATH + ", POST " + CONTENT_PATH + ", GET " + CONTENT_PATH
+				+ ", POST " + CONTENT_PATH, join(requests));
+		Assert.assertEquals(1, createdPages.get());
+	}
+
+	/**
+	 * The pages are produced as threads become free to publish them, and all of them are published.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testPublishAllHoldsBoundedPages() throws Exception {
+		final int pageCount = 20;
+		final ConfluencePublisher publisher = newPublisher();
+		final AtomicInteger produced = new AtomicInteger();
+		final AtomicInteger maxPending = new AtomicInteger();
+		try {
+			publisher.publishAll(new ConfluencePublisher.PageProducer() {
+				@Override
+				public ConfluencePublisher.Page next() {
+					int pending = produced.get() - publisher.getUploadedPages();
+					maxPending.set(Math.max(maxPending.get(), pending));
+					if (produced.get() == pageCount) {
+						return null;
+					}
+					return new ConfluencePublisher.Page("Page " + produced.incrementAndGet(), "<p>page</p>");
+				}
+			}, "5");
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals(pageCount, publisher.getUploadedPages());
+		Assert.assertEquals(pageCount, createdPages.get());
+		Assert.assertTrue("Pages pending when the next page was produced: " + maxPending.get(),
+				maxPending.get() < PARALLELISM);
+	}
+
+	/**
+	 * A page that cannot be published does not stop the others.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testPublishAllReportsFailedPages() throws Exception {
+		final List<String> titles = new ArrayList<>(Collections.nCopies(5, "Page"));
+		titles.set(2, "Rejected");
+		ConfluencePublisher publisher = newPublisher();
+		try {
+			publisher.publishAll(new ConfluencePublisher.PageProducer() {
+				private int next;
+
+				@Override
+				public ConfluencePublisher.Page next() {
+					return next == titles.size() ? null
+							: new ConfluencePublisher.Page(titles.get(next) + " " + next++, "<p>page</p>");
+				}
+			}, null);
+			Assert.fail("All the pages were reported as published");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("1 of 5"));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals(titles.size() - 1, publisher.getUploadedPages());
+	}
+
+	/**
+	 * A page whose content did not change since it was recorded is not sent.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testSkipsUnchangedPage() throws Exception {
+		ConfluenceManifest manifest = newManifest();
+		manifest.put("API", new ConfluenceManifest.Entry("7", 2, ConfluenceManifest.hash("<p>api</p>", "5")));
+		ConfluencePublisher publisher = newPublisher(manifest);
+		try {
+			Assert.assertEquals("7", publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), "5"));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals(0, requests.size());
+		Assert.assertEquals(1, publisher.getSkippedPages());
+		Assert.assertEquals(0, publisher.getUploadedPages());
+	}
+
+	/**
+	 * A page moved under another parent is sent, although its body did not change.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testUpdatesMovedPage() throws Exception {
+		ConfluenceManifest manifest = newManifest();
+		manifest.put("API", new ConfluenceManifest.Entry("7", 2, ConfluenceManifest.hash("<p>api</p>", "5")));
+		ConfluencePublisher publisher = newPublisher(manifest);
+		try {
+			publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), "6");
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("PUT " + CONTENT_PATH + "/7", join(requests));
+	}
+
+	/**
+	 * A changed page is updated to the version after the recorded one, without looking it up,
+	 * and the manifest records the new version.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testUpdatesChangedPageWithoutLookup() throws Exception {
+		ConfluenceManifest manifest = newManifest();
+		manifest.put("API", new ConfluenceManifest.Entry("7", 2, ConfluenceManifest.hash("<p>old</p>", null)));
+		ConfluencePublisher publisher = newPublisher(manifest);
+		try {
+			Assert.assertEquals("7", publisher.publish(new ConfluencePublisher.Page("API", "<p>new</p>"), null));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("PUT " + CONTENT_PATH + "/7", join(requests));
+		Assert.assertTrue(bodies.get(0), bodies.get(0).contains("\"version\":{\"number\":3}"));
+		ConfluenceManifest.Entry entry = manifest.get("API");
+		Assert.assertEquals("7", entry.getId());
+		Assert.assertEquals(3, entry.getVersion());
+		Assert.assertEquals(ConfluenceManifest.hash("<p>new</p>", null), entry.getHash());
+	}
+
+	/**
+	 * A page removed from Confluence since it was recorded is looked up by its title, and created again.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testLooksUpPageRemovedSinceRecorded() throws Exception {
+		ConfluenceManifest manifest = newManifest();
+		manifest.put("API", new ConfluenceManifest.Entry("7", 2, ConfluenceManifest.hash("<p>old</p>", null)));
+		replies.add(new Reply(404, "not found"));
+		ConfluencePublisher publisher = newPublisher(manifest);
+		try {
+			Assert.assertEquals("100", publisher.publish(new ConfluencePublisher.Page("API", "<p>new</p>"), null));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("PUT " + CONTENT_PATH + "/7, GET " + CONTENT_PATH + ", POST " + CONTENT_PATH,
+				join(requests));
+		Assert.assertEquals("100", manifest.get("API").getId());
+		Assert.assertEquals(1, manifest.get("API").getVersion());
+	}
+
+	/**
+	 * A page edited in Confluence since it was recorded is looked up by its title,
+	 * and updated to the version after its current one.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testLooksUpPageEditedSinceRecorded() throws Exception {
+		ConfluenceManifest manifest = newManifest();
+		manifest.put("API", new ConfluenceManifest.Entry("7", 2, ConfluenceManifest.hash("<p>old</p>", null)));
+		replies.add(new Reply(409, "version conflict"));
+		replies.add(new Reply(200, found("7", 5)));
+		ConfluencePublisher publisher = newPublisher(manifest);
+		try {
+			Assert.assertEquals("7", publisher.publish(new ConfluencePublisher.Page("API", "<p>new</p>"), null));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("PUT " + CONTENT_PATH + "/7, GET " + CONTENT_PATH + ", PUT " + CONTENT_PATH + "/7",
+				join(requests));
+		Assert.assertTrue(bodies.get(2), bodies.get(2).contains("\"version\":{\"number\":6}"));
+		Assert.assertEquals(6, manifest.get("API").getVersion());
+	}
+
+	/**
+	 * Other failures of an update to a recorded page are not handled as a stale record.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testDoesNotLookUpAfterOtherFailures() throws Exception {
+		ConfluenceManifest manifest = newManifest();
+		manifest.put("API", new ConfluenceManifest.Entry("7", 2, ConfluenceManifest.hash("<p>old</p>", null)));
+		replies.add(new Reply(403, "forbidden"));
+		ConfluencePublisher publisher = newPublisher(manifest);
+		try {
+			publisher.publish(new ConfluencePublisher.Page("API", "<p>new</p>"), null);
+			Assert.fail("The page was published although the update was forbidden");
+		} catch (IOException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("403"));
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals("PUT " + CONTENT_PATH + "/7", join(requests));
+		Assert.assertEquals(2, manifest.get("API").getVersion());
+	}
+
+	/**
+	 * The published pages are kept by the saved manifest, and only for the same space.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testManifestKeepsPublishedPages() throws Exception {
+		ConfluenceManifest manifest = newManifest();
+		ConfluencePublisher publisher = newPublisher(manifest);
+		try {
+			publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), null);
+		} finally {
+			publisher.close();
+		}
+		manifest.save();
+
+		ConfluenceManifest loaded = newManifest();
+		Assert.assertEquals("100", loaded.get("API").getId());
+		Assert.assertEquals(1, loaded.get("API").getVersion());
+		Assert.assertEquals(ConfluenceManifest.hash("<p>api</p>", null), loaded.get("API").getHash());
+		Assert.assertNull(ConfluenceManifest.load(getManifestFile(), getBaseUrl(), "OTHER").get("API"));
+
+		requests.clear();
+		publisher = newPublisher(loaded);
+		try {
+			publisher.publish(new ConfluencePublisher.Page("API", "<p>api</p>"), null);
+		} finally {
+			publisher.close();
+		}
+		Assert.assertEquals(0, requests.size());
+	}
+
+	private ConfluencePublisher newPublisher() {
+		return newPublisher(null);
+	}
+
+	private ConfluencePublisher newPublisher(final ConfluenceManifest manifest) {
+		return new ConfluencePublisher(getBaseUrl(), SPACE, CREDENTIALS, PARALLELISM, RETRIES, manifest);
+	}
+
+	private ConfluenceManifest newManifest() {
+		return ConfluenceManifest.load(getManifestFile(), getBaseUrl(), SPACE);
+	}
+
+	private File getManifestFile() {
+		return new File(manifestDir, "manifest.json");
+	}
+
+	private String getBaseUrl() {
+		return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+	}
+
+	// Pages are not found by their title, created with a new id and updated to the version they are sent with
+	private Reply getDefaultReply(final HttpExchange exchange, final String body) {
+		String method = exchange.getRequestMethod();
+		if ("GET".equals(method)) {
+			return new Reply(200, NO_RESULTS);
+		}
+		if (body.contains("\"title\":\"Rejected")) {
+			return new Reply(400, "rejected");
+		}
+		if ("POST".equals(method)) {
+			return new Reply(200, page(String.valueOf(100 + createdPages.getAndIncrement()), 1));
+		}
+		String path = exchange.getRequestURI().getPath();
+		Matcher version = VERSION.matcher(body);
+		return new Reply(200, page(path.substring(path.lastIndexOf('/') + 1),
+				version.find() ? Integer.parseInt(version.group(1)) : 1));
+	}
+
+	private static String found(final String id, final int version) {
+		return "{\"results\":[" + page(id, version) + "]}";
+	}
+
+	private static String page(final String id, final int version) {
+		return "{\"id\":\"" + id + "\",\"type\":\"page\",\"version\":{\"number\":" + version + "}}";
+	}
+
+	private static String join(final List<String> values) {
+		StringBuilder joined = new StringBuilder();
+		synchronized (values) {
+			for (String value : values) {
+				if (joined.length() > 0) {
+					joined.append(", ");
+				}
+				joined.append(value);
+			}
+		}
+		return joined.toString();
+	}
+
+	private static String read(final InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+			out.write(buffer, 0, read);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The status and the body of a response.
+	 */
+	private static final class Reply {
+		private final int status;
+		private final String body;
+
+		Reply(final int status, final String body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+}
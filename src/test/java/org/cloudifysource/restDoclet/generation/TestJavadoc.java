@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudifysource.restDoclet.constants.RestDocConstants;
+import org.cloudifysource.restDoclet.exampleGenerators.DefaultRequestBodyParameterFilter;
+import org.cloudifysource.restDoclet.exampleGenerators.DocDefaultExampleGenerator;
+
+import com.sun.javadoc.LanguageVersion;
+import com.sun.javadoc.RootDoc;
+
+/**
+ * A doclet that only keeps the javadoc model of sources written by a test.
+ *
+ * @since 0.5.3
+ */
+public final class TestJavadoc {
+	private static RootDoc captured;
+
+	private TestJavadoc() {
+	}
+
+	/**
+	 *
+	 * @param root .
+	 * @return true.
+	 */
+	public static boolean start(final RootDoc root) {
+		captured = root;
+		return true;
+	}
+
+	/**
+	 *
+	 * @return LanguageVersion.JAVA_1_5
+	 */
+	public static LanguageVersion languageVersion() {
+		return LanguageVersion.JAVA_1_5;
+	}
+
+	/**
+	 * Writes the source of a class under the given source directory.
+	 *
+	 * @param sourceDir .
+	 * @param qualifiedName .
+	 * @param source .
+	 * @throws IOException .
+	 */
+	static void write(final File sourceDir, final String qualifiedName, final String source) throws IOException {
+		File file = new File(sourceDir, qualifiedName.replace('.', File.separatorChar) + ".java");
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Runs javadoc on a package of the given source directory, the private members are documented.
+	 *
+	 * @param sourceDir .
+	 * @param packageName .
+	 * @return The javadoc model.
+	 */
+	static synchronized RootDoc parse(final File sourceDir, final String packageName) {
+		List<String> args = new ArrayList<String>();
+		args.add("-quiet");
+		args.add("-private");
+		args.add(RestDocConstants.SOURCE_PATH_FLAG);
+		args.add(sourceDir.getAbsolutePath());
+		args.add("-classpath");
+		args.add(System.getProperty("java.class.path"));
+		args.add(packageName);
+
+		StringWriter errors = new StringWriter();
+		PrintWriter errWriter = new PrintWriter(errors);
+		PrintWriter silent = new PrintWriter(new StringWriter());
+		captured = null;
+		int exitCode = com.sun.tools.javadoc.Main.execute("rest-doclet-tests", errWriter, silent, silent,
+				TestJavadoc.class.getName(), TestJavadoc.class.getClassLoader(),
+				args.toArray(new String[args.size()]));
+		errWriter.flush();
+		if (exitCode != 0 || captured == null) {
+			throw new IllegalStateException("javadoc failed with exit code " + exitCode + ": " + errors);
+		}
+		return captured;
+	}
+
+	/**
+	 *
+	 * @param root .
+	 * @return A new context of the model, with the default example generators and request body filter.
+	 */
+	static GenerationContext newContext(final RootDoc root) {
+		return new GenerationContext(root, new DocDefaultExampleGenerator(), new DocDefaultExampleGenerator(),
+				new DefaultRequestBodyParameterFilter());
+	}
+
+	/**
+	 * Deletes a directory and everything under it.
+	 *
+	 * @param file .
+	 * @throws IOException .
+	 */
+	static void delete(final File file) throws IOException {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		Files.deleteIfExists(file.toPath());
+	}
+}
@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright (c) 2012 GigaSpaces Technologies Ltd. All rights reserved
+ * <p/>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package org.cloudifysource.restDoclet.generation;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.cloudifysource.restDoclet.docElements.DocController;
+import org.cloudifysource.restDoclet.docElements.DocHttpMethod;
+import org.cloudifysource.restDoclet.docElements.DocMethod;
+import org.cloudifysource.restDoclet.docElements.DocParameter;
+import org.cloudifysource.restDoclet.exampleGenerators.DefaultRequestBodyParameterFilter;
+import org.cloudifysource.restDoclet.exampleGenerators.DocDefaultExampleGenerator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.javadoc.ClassDoc;
+import com.sun.javadoc.FieldDoc;
+import com.sun.javadoc.MethodDoc;
+import com.sun.javadoc.RootDoc;
+
+/**
+ * The cached schemas of cyclic DTOs must be the same as the schemas computed without the cache,
+ * whatever the order the DTOs are traversed in.
+ *
+ * @since 0.5.3
+ */
+public class TypeSchemaCacheTest {
+	private static final String PACKAGE = "org.cycles";
+	private static final String[] DTOS = { "A", "B", "C" };
+	private static final int DEPTH = 4;
+	private static final int MAX_DEPTH = 3;
+
+	private File sourceDir;
+	private RootDoc root;
+
+	/**
+	 * Parses A{b:B}, B{a:A, children:List of B} and C{a:A, b:B}, with a controller that takes each of them,
+	 * and the chain D1{next:D2} to D4{next:String}.
+	 *
+	 * @throws Exception .
+	 */
+	@Before
+	public void setUp() throws Exception {
+		sourceDir = Files.createTempDirectory("rest-doclet-cycles").toFile();
+		TestJavadoc.write(sourceDir, PACKAGE + ".A", "package org.cycles;\n"
+				+ "/** A. */ public class A { /** b */ private B b; /** name */ private String name; }\n");
+		TestJavadoc.write(sourceDir, PACKAGE + ".B", "package org.cycles;\n"
+				+ "/** B. */ public class B { /** a */ private A a;"
+				+ " /** children */ private java.util.List<B> children; /** count */ private int count; }\n");
+		TestJavadoc.write(sourceDir, PACKAGE + ".C", "package org.cycles;\n"
+				+ "/** C. */ public class C { /** a */ private A a; /** b */ private B b; }\n");
+		for (int i = 1; i <= DEPTH; i++) {
+			TestJavadoc.write(sourceDir, PACKAGE + ".D" + i, "package org.cycles;\n"
+					+ "/** D. */ public class D" + i + " { /** next */ private "
+					+ (i < DEPTH ? "D" + (i + 1) : "String") + " next; }\n");
+		}
+		for (String dto : DTOS) {
+			TestJavadoc.write(sourceDir, PACKAGE + "." + dto + "Controller", "package org.cycles;\n"
+					+ "import org.springframework.stereotype.Controller;\n"
+					+ "import org.springframework.web.bind.annotation.*;\n"
+					+ "/** Controller. */ @Controller @RequestMapping(\"/" + dto + "\")\n"
+					+ "public class " + dto + "Controller {\n"
+					+ "	/** Post. @param dto the dto. */\n"
+					+ "	@RequestMapping(value = \"\", method = RequestMethod.POST)\n"
+					+ "	public void post(@RequestBody final " + dto + " dto) { }\n"
+					+ "}\n");
+		}
+		root = TestJavadoc.parse(sourceDir, PACKAGE);
+	}
+
+	/**
+	 *
+	 * @throws Exception .
+	 */
+	@After
+	public void tearDown() throws Exception {
+		TestJavadoc.delete(sourceDir);
+	}
+
+	/**
+	 * A cycle is cut at the type that is already on the stack.
+	 */
+	@Test
+	public void testJsonBodyCutsCycles() {
+		Assert.assertEquals("{a={b=B, name=String}, children=[B], count=int}",
+				describe(generateJSONBody(TestJavadoc.newContext(root), "B")));
+		Assert.assertEquals("{b={a=A, children=[B], count=int}, name=String}",
+				describe(generateJSONBody(TestJavadoc.newContext(root), "A")));
+	}
+
+	/**
+	 * Every DTO gets the body it gets from an empty cache, whatever was traversed before it.
+	 */
+	@Test
+	public void testJsonBodyDoesNotDependOnTraversalOrder() {
+		for (List<String> order : orders()) {
+			GenerationContext context = TestJavadoc.newContext(root);
+			for (String dto : order) {
+				Assert.assertEquals("Traversal order " + order,
+						describe(generateJSONBody(TestJavadoc.newContext(root), dto)),
+						describe(generateJSONBody(context, dto)));
+			}
+		}
+	}
+
+	/**
+	 * A body cached below the maximal depth is not reused where it would go beyond it.
+	 */
+	@Test
+	public void testJsonBodyDoesNotDependOnTraversalDepth() {
+		GenerationContext context = newContext(MAX_DEPTH);
+		for (int i = DEPTH; i >= 1; i--) {
+			Assert.assertEquals(describe(generateJSONBody(newContext(MAX_DEPTH), "D" + i)),
+					describe(generateJSONBody(context, "D" + i)));
+		}
+		Assert.assertEquals("{next={next={next=Object}}}", describe(generateJSONBody(context, "D1")));
+	}
+
+	/**
+	 * Every controller gets the parameters it gets from an empty cache, whatever was extracted before it.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testParametersDoNotDependOnTraversalOrder() throws Exception {
+		for (List<String> order : orders()) {
+			GenerationContext context = TestJavadoc.newContext(root);
+			for (String dto : order) {
+				ClassDoc controller = root.classNamed(PACKAGE + "." + dto + "Controller");
+				Assert.assertEquals("Traversal order " + order,
+						describeParameters(TestJavadoc.newContext(root), controller),
+						describeParameters(context, controller));
+			}
+		}
+	}
+
+	/**
+	 * The controllers extracted concurrently get the parameters they get from an empty cache.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testParallelExtractionMatchesUncached() throws Exception {
+		RootDoc model = SynchronizedRootDoc.wrap(root);
+		List<ClassDoc> controllers = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			controllers.add(model.classNamed(PACKAGE + "." + DTOS[i % DTOS.length] + "Controller"));
+		}
+		Map<ClassDoc, List<DocController>> extracted = Generator.generateControllers(TestJavadoc.newContext(model),
+				controllers.toArray(new ClassDoc[controllers.size()]), 4);
+		for (Map.Entry<ClassDoc, List<DocController>> entry : extracted.entrySet()) {
+			Assert.assertEquals(describeParameters(TestJavadoc.newContext(root), entry.getKey()),
+					describeParameters(entry.getValue()));
+		}
+	}
+
+	/**
+	 * The classes, methods and fields listed by the guarded model are guarded too,
+	 * and the controllers extracted from them concurrently get the parameters they get from the model itself.
+	 *
+	 * @throws Exception .
+	 */
+	@Test
+	public void testParallelExtractionOfListedClassesIsGuarded() throws Exception {
+		ClassDoc[] classes = SynchronizedRootDoc.wrap(root).classes();
+		Assert.assertEquals(root.classes().length, classes.length);
+		for (ClassDoc classDoc : classes) {
+			Assert.assertTrue(classDoc.qualifiedName(), Proxy.isProxyClass(classDoc.getClass()));
+			for (MethodDoc method : classDoc.methods()) {
+				Assert.assertTrue(method.qualifiedName(), Proxy.isProxyClass(method.getClass()));
+			}
+			for (FieldDoc field : classDoc.fields()) {
+				Assert.assertTrue(field.qualifiedName(), Proxy.isProxyClass(field.getClass()));
+			}
+		}
+		Map<ClassDoc, List<DocController>> extracted = Generator.generateControllers(
+				TestJavadoc.newContext(SynchronizedRootDoc.wrap(root)), classes, 4);
+		int controllers = 0;
+		for (Map.Entry<ClassDoc, List<DocController>> entry : extracted.entrySet()) {
+			if (entry.getValue() == null) {
+				continue;
+			}
+			controllers++;
+			ClassDoc controller = root.classNamed(entry.getKey().qualifiedName());
+			Assert.assertEquals(describeParameters(TestJavadoc.newContext(root), controller),
+					describeParameters(entry.getValue()));
+		}
+		Assert.assertEquals(DTOS.length, controllers);
+	}
+
+	private GenerationContext newContext(final int maxDepth) {
+		return new GenerationContext(root, new DocDefaultExampleGenerator(), new DocDefaultExampleGenerator(),
+				new DefaultRequestBodyParameterFilter(), GenerationMetrics.DISABLED, maxDepth);
+	}
+
+	private Map<String, Object> generateJSONBody(final GenerationContext context, final String dto) {
+		ClassDoc classDoc = root.classNamed(PACKAGE + "." + dto);
+		context.pushType(classDoc.qualifiedTypeName());
+		Map<String, Object> body = Generator.generateJSONBody(context, classDoc, TypeVariableResolver.Bindings.EMPTY);
+		context.clearStack();
+		return body;
+	}
+
+	private static List<List<String>> orders() {
+		List<List<String>> orders = new ArrayList<>();
+		for (String first : DTOS) {
+			for (String second : DTOS) {
+				for (String third : DTOS) {
+					if (!first.equals(second) && !first.equals(third) && !second.equals(third)) {
+						orders.add(Arrays.asList(first, second, third));
+					}
+				}
+			}
+		}
+		return orders;
+	}
+
+	private static String describeParameters(final GenerationContext context, final ClassDoc controller)
+			throws Exception {
+		return describeParameters(Generator.generateControllers(context, new ClassDoc[] { controller }, 1)
+				.get(controller));
+	}
+
+	private static String describeParameters(final List<DocController> controllers) {
+		StringBuilder description = new StringBuilder();
+		for (DocController controller : controllers) {
+			for (DocMethod method : controller.getMethods().values()) {
+				for (DocHttpMethod httpMethod : method.getHttpMethods()) {
+					for (DocParameter param : httpMethod.getParams()) {
+						description.append(param.getName()).append(' ')
+								.append(param.getType().qualifiedTypeName()).append('\n');
+					}
+				}
+			}
+		}
+		return description.toString();
+	}
+
+	// Maps are described with their keys sorted, arrays with their elements
+	private static String describe(final Object value) {
+		if (value instanceof Map) {
+			Map<String, String> sorted = new TreeMap<>();
+			for (Object entry : ((Map) value).entrySet()) {
+				Map.Entry mapEntry = (Map.Entry) entry;
+				sorted.put(String.valueOf(mapEntry.getKey()), describe(mapEntry.getValue()));
+			}
+			return sorted.toString();
+		}
+		if (value instanceof Object[]) {
+			List<String> elements = new ArrayList<>();
+			for (Object element : (Object[]) value) {
+				elements.add(describe(element));
+			}
+			return elements.toString();
+		}
+		return String.valueOf(value);
+	}
+}